@@ -0,0 +1,129 @@
+package benchmark;
+
+import bots.EnemyWave;
+import profiling.InputRecorder;
+
+import java.awt.geom.Point2D;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Inputs of the benchmarks. If the system property benchmark.inputs names an inputs.csv written by a robot with
+ * recordInputs on, the recorded lines of the requested kind are replayed; otherwise (or if the file has none) a seeded
+ * generator produces inputs with the same ranges, so runs without a recording are still comparable with each other.
+ */
+public final class BenchmarkInputs {
+
+    private BenchmarkInputs() {
+
+    }
+
+    public static final String INPUTS_PROPERTY = "benchmark.inputs";
+    public static final int NUM_GENERATED = 1024;
+    private static final long SEED = 42;
+
+    public static final int LUT_WIDTH = 7;
+    public static final int NN_WIDTH = 9;
+    public static final int WAVE_WIDTH = 10;
+
+    /**
+     * @return State action vectors of RL_robot (6 quantized states and the action)
+     */
+    public static double[][] lutInputs() {
+        double[][] recorded = load(InputRecorder.LUT, LUT_WIDTH);
+        if (recorded != null) return recorded;
+
+        Random rand = new Random(SEED);
+        double[][] inputs = new double[NUM_GENERATED][LUT_WIDTH];
+        for (double[] input : inputs) {
+            input[0] = rand.nextInt(17) - 8;    // x from enemy
+            input[1] = rand.nextInt(13) - 6;    // y from enemy
+            input[2] = rand.nextInt(2);         // enemy moving
+            input[3] = rand.nextInt(9) - 4;     // x from center
+            input[4] = rand.nextInt(7) - 3;     // y from center
+            input[5] = rand.nextInt(2);         // energy level
+            input[6] = rand.nextInt(5);         // action
+        }
+        return inputs;
+    }
+
+    /**
+     * @return State action vectors of BasicWaveSurferBot (positions from the center / 100, one-hot action)
+     */
+    public static double[][] nnInputs() {
+        double[][] recorded = load(InputRecorder.NN, NN_WIDTH);
+        if (recorded != null) return recorded;
+
+        Random rand = new Random(SEED);
+        double[][] inputs = new double[NUM_GENERATED][NN_WIDTH];
+        for (double[] input : inputs) {
+            input[0] = Math.round((rand.nextDouble() - 0.5) * 800) / 100.0;
+            input[1] = Math.round((rand.nextDouble() - 0.5) * 600) / 100.0;
+            input[2] = Math.round((rand.nextDouble() - 0.5) * 800) / 100.0;
+            input[3] = Math.round((rand.nextDouble() - 0.5) * 600) / 100.0;
+            input[5 + rand.nextInt(4)] = 1;
+        }
+        return inputs;
+    }
+
+    /**
+     * @return Surfed waves, in the InputRecorder.WAVE layout
+     */
+    public static double[][] waveInputs() {
+        double[][] recorded = load(InputRecorder.WAVE, WAVE_WIDTH);
+        if (recorded != null) return recorded;
+
+        Random rand = new Random(SEED);
+        double[][] inputs = new double[NUM_GENERATED][WAVE_WIDTH];
+        for (double[] input : inputs) {
+            input[0] = 18 + rand.nextDouble() * 764;
+            input[1] = 18 + rand.nextDouble() * 564;
+            input[2] = rand.nextDouble() * 16 - 8;
+            input[3] = rand.nextDouble() * 2 * Math.PI;
+            // fired from 150 to 600 pixels away, the bullet is up to 10 ticks on its way
+            double distance = 150 + rand.nextDouble() * 450;
+            double bearing = rand.nextDouble() * 2 * Math.PI;
+            input[4] = input[0] + Math.sin(bearing) * distance;
+            input[5] = input[1] + Math.cos(bearing) * distance;
+            input[6] = 20 - 3 * (0.1 + rand.nextDouble() * 2.9);
+            input[7] = bearing + Math.PI;
+            input[8] = rand.nextInt(10) * input[6];
+            input[9] = rand.nextBoolean() ? 1 : -1;
+        }
+        return inputs;
+    }
+
+    public static EnemyWave toWave(double[] input) {
+        EnemyWave wave = new EnemyWave();
+        wave.fireLocation = new Point2D.Double(input[4], input[5]);
+        wave.bulletVelocity = input[6];
+        wave.directAngle = input[7];
+        wave.distanceTraveled = input[8];
+        wave.direction = (int) input[9];
+        return wave;
+    }
+
+    // the recorded lines of one kind, null if there is no recording or it has none
+    private static double[][] load(String kind, int width) {
+        String fileName = System.getProperty(INPUTS_PROPERTY);
+        if (fileName == null) return null;
+
+        ArrayList<double[]> inputs = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (!fields[0].equals(kind) || fields.length != width + 1) continue;
+                double[] input = new double[width];
+                for (int i = 0; i < width; i++) input[i] = Double.parseDouble(fields[i + 1]);
+                inputs.add(input);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read " + INPUTS_PROPERTY + "=" + fileName, e);
+        }
+        return inputs.isEmpty() ? null : inputs.toArray(new double[inputs.size()][]);
+    }
+}
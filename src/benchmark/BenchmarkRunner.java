@@ -0,0 +1,28 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this package with the GC profiler, which adds the allocation rate
+ * (gc.alloc.rate.norm, bytes per operation) next to the time of each benchmark.
+ *
+ * Usage: BenchmarkRunner [regex of the benchmarks to run] [-Dbenchmark.inputs=inputs.csv]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "benchmark\\..*Benchmark")
+                .addProfiler(GCProfiler.class);
+
+        // the benchmarks run in forked JVMs, which need to know about the recorded inputs too
+        String inputs = System.getProperty(BenchmarkInputs.INPUTS_PROPERTY);
+        if (inputs != null) options.jvmArgsAppend("-D" + BenchmarkInputs.INPUTS_PROPERTY + "=" + inputs);
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import neuralNet.EncogNetwork;
+import neuralNet.OnlineTrainer;
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.mathutil.randomize.ConsistentRandomizer;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.layers.BasicLayer;
+import org.encog.neural.networks.training.propagation.sgd.StochasticGradientDescent;
+import org.encog.neural.networks.training.propagation.sgd.update.MomentumUpdate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The 9-17-1 Encog network of BasicWaveSurferBot:
+ *  - a Q value prediction: BasicNetwork.compute on MLData against EncogNetwork.outputFor (flat compute on reused buffers)
+ *  - a single sample update: a new data set and SGD trainer per sample against OnlineTrainer
+ * Run it through BenchmarkRunner for the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncogBenchmark {
+
+    private BasicNetwork network;
+    private EncogNetwork encogNetwork;
+    private BasicNetwork perSampleNetwork;
+    private OnlineTrainer trainer;
+    private final double[][] target = {{0.5}};
+    private double[][] inputs;
+    private int next = 0;
+
+    private static BasicNetwork newNetwork() {
+        BasicNetwork network = new BasicNetwork();
+        network.addLayer(new BasicLayer(null, true, 9));
+        network.addLayer(new BasicLayer(new ActivationSigmoid(), true, 17));
+        network.addLayer(new BasicLayer(new ActivationSigmoid(), false, 1));
+        network.getStructure().finalizeStructure();
+        network.reset();
+        new ConsistentRandomizer(-0.05, 0.05, 42).randomize(network);
+        return network;
+    }
+
+    @Setup
+    public void setUp() {
+        inputs = BenchmarkInputs.nnInputs();
+        network = newNetwork();
+        encogNetwork = new EncogNetwork(newNetwork(), 0.01, 0.8);
+        perSampleNetwork = newNetwork();
+        trainer = new OnlineTrainer(newNetwork(), 0.01, 0.8);
+    }
+
+    private double[] nextInput() {
+        double[] input = inputs[next];
+        next = (next + 1) % inputs.length;
+        return input;
+    }
+
+    @Benchmark
+    public double computeMLData() {
+        return network.compute(new BasicMLData(nextInput())).getData(0);
+    }
+
+    @Benchmark
+    public double encogNetworkOutputFor() {
+        return encogNetwork.outputFor(nextInput());
+    }
+
+    // the old update path: a new data set and trainer for every sample
+    @Benchmark
+    public BasicNetwork trainSGDPerSample() {
+        StochasticGradientDescent sgd = new StochasticGradientDescent(perSampleNetwork,
+                new BasicMLDataSet(new double[][]{nextInput()}, target));
+        sgd.setLearningRate(0.01);
+        sgd.setMomentum(0.8);
+        sgd.setUpdateRule(new MomentumUpdate());
+        sgd.iteration();
+        return perSampleNetwork;
+    }
+
+    @Benchmark
+    public OnlineTrainer trainOnlineTrainer() {
+        trainer.train(nextInput(), 0.5);
+        return trainer;
+    }
+}
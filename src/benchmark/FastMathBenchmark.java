@@ -0,0 +1,84 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import util.FastMath;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FastMath against Math on the angles and vectors of the (recorded or generated) surfed waves: the headings and
+ * bearings for sin and cos, the vector from the fire location to us for atan2 and the bullet velocity for the
+ * escape angle asin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastMathBenchmark {
+
+    private double[] angles;
+    private double[] dx;
+    private double[] dy;
+    private double[] escapeRatios;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        double[][] inputs = BenchmarkInputs.waveInputs();
+        angles = new double[2 * inputs.length];
+        dx = new double[inputs.length];
+        dy = new double[inputs.length];
+        escapeRatios = new double[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            angles[2 * i] = inputs[i][3];       // our heading
+            angles[2 * i + 1] = inputs[i][7];   // the direct angle of the wave
+            dx[i] = inputs[i][0] - inputs[i][4];
+            dy[i] = inputs[i][1] - inputs[i][5];
+            escapeRatios[i] = 8.0 / inputs[i][6];
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % dx.length;
+        return i;
+    }
+
+    @Benchmark
+    public double mathSinCos() {
+        int i = nextIndex();
+        return Math.sin(angles[2 * i]) + Math.cos(angles[2 * i + 1]);
+    }
+
+    @Benchmark
+    public double fastSinCos() {
+        int i = nextIndex();
+        return FastMath.sin(angles[2 * i]) + FastMath.cos(angles[2 * i + 1]);
+    }
+
+    @Benchmark
+    public double mathAtan2() {
+        int i = nextIndex();
+        return Math.atan2(dx[i], dy[i]);
+    }
+
+    @Benchmark
+    public double fastAtan2() {
+        int i = nextIndex();
+        return FastMath.atan2(dx[i], dy[i]);
+    }
+
+    @Benchmark
+    public double mathAsin() {
+        int i = nextIndex();
+        return Math.asin(escapeRatios[i]);
+    }
+
+    @Benchmark
+    public double fastAsin() {
+        int i = nextIndex();
+        return FastMath.asin(escapeRatios[i]);
+    }
+}
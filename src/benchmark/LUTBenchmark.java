@@ -0,0 +1,54 @@
+package benchmark;
+
+import lookupTable.LUT;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LUT lookups and updates with the state action vectors of RL_robot.
+ * Half of the inputs are trained in the setup, so outputFor sees both hits and misses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LUTBenchmark {
+
+    private static final int[] FLOORS = {-8, -6, 0, -4, -3, 0, 0};
+    private static final int[] CEILINGS = {8, 6, 1, 4, 3, 1, 4};
+
+    private LUT lut;
+    private double[][] inputs;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        inputs = BenchmarkInputs.lutInputs();
+        lut = new LUT(BenchmarkInputs.LUT_WIDTH, FLOORS, CEILINGS);
+        for (int i = 0; i < inputs.length; i += 2) lut.train(inputs[i], 0.5);
+    }
+
+    private double[] nextInput() {
+        double[] input = inputs[next];
+        next = (next + 1) % inputs.length;
+        return input;
+    }
+
+    @Benchmark
+    public String indexFor() {
+        return lut.indexFor(nextInput());
+    }
+
+    @Benchmark
+    public double outputFor() {
+        return lut.outputFor(nextInput());
+    }
+
+    @Benchmark
+    public double train() {
+        return lut.train(nextInput(), 0.5);
+    }
+}
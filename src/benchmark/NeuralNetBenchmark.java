@@ -0,0 +1,47 @@
+package benchmark;
+
+import neuralNet.Constants;
+import neuralNet.NeuralNet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forward pass and single sample back propagation of NeuralNet at the Constants topology.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeuralNetBenchmark {
+
+    private NeuralNet net;
+    private double[][] inputs;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        inputs = BenchmarkInputs.nnInputs();
+        net = new NeuralNet(Constants.NUM_INPUTS, Constants.NUM_HIDDEN, Constants.NUM_OUTPUTS, Constants.LEARNING_RATE,
+                Constants.MOMENTUM, Constants.ARG_A, Constants.ARG_B, Constants.BIPOLAR);
+        net.initializeWeights();
+    }
+
+    private double[] nextInput() {
+        double[] input = inputs[next];
+        next = (next + 1) % inputs.length;
+        return input;
+    }
+
+    @Benchmark
+    public double outputFor() {
+        return net.outputFor(nextInput());
+    }
+
+    @Benchmark
+    public double train() {
+        return net.train(nextInput(), 0.5);
+    }
+}
@@ -0,0 +1,118 @@
+package benchmark;
+
+import bots.EnemyWave;
+import bots.MovementPredictor;
+import bots.WaveSurfing;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wave surfing math of BasicWaveSurferBot on surfed waves: the movement prediction (the reference one call
+ * per direction, and the MovementPredictor doing both directions per tick of the robot), the wall smoothing it
+ * runs on every simulated tick (closed-form and the iterative reference) and the bin lookup.
+ * The wall smoothing is also measured in its worst case: near a corner, heading into it, where the stick
+ * crosses both walls and the iterative version needs the most passes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaveSurfingBenchmark {
+
+    private Point2D.Double[] locations;
+    private double[] velocities;
+    private double[] headings;
+    private EnemyWave[] waves;
+    private Point2D.Double[] predictedLocations;
+    private final MovementPredictor predictor = new MovementPredictor();
+    private double[] cornerX;
+    private double[] cornerY;
+    private double[] cornerAngles;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        double[][] inputs = BenchmarkInputs.waveInputs();
+        locations = new Point2D.Double[inputs.length];
+        velocities = new double[inputs.length];
+        headings = new double[inputs.length];
+        waves = new EnemyWave[inputs.length];
+        predictedLocations = new Point2D.Double[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            locations[i] = new Point2D.Double(inputs[i][0], inputs[i][1]);
+            velocities[i] = inputs[i][2];
+            headings[i] = inputs[i][3];
+            waves[i] = BenchmarkInputs.toWave(inputs[i]);
+            predictedLocations[i] = WaveSurfing.predictPosition(locations[i], velocities[i], headings[i], waves[i], 1);
+        }
+
+        // up to 60 px from the walls of a corner, heading within 43 degrees of it
+        Random rand = new Random(42);
+        cornerX = new double[inputs.length];
+        cornerY = new double[inputs.length];
+        cornerAngles = new double[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            boolean east = rand.nextBoolean(), north = rand.nextBoolean();
+            double cx = east ? WaveSurfing.ARENA_WIDTH : 0, cy = north ? WaveSurfing.ARENA_HEIGHT : 0;
+            cornerX[i] = east ? cx - 18 - rand.nextDouble() * 60 : 18 + rand.nextDouble() * 60;
+            cornerY[i] = north ? cy - 18 - rand.nextDouble() * 60 : 18 + rand.nextDouble() * 60;
+            cornerAngles[i] = Math.atan2(cx - cornerX[i], cy - cornerY[i]) + (rand.nextDouble() - 0.5) * 1.5;
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % waves.length;
+        return i;
+    }
+
+    @Benchmark
+    public Point2D.Double predictPosition() {
+        int i = nextIndex();
+        return WaveSurfing.predictPosition(locations[i], velocities[i], headings[i], waves[i], waves[i].direction);
+    }
+
+    @Benchmark
+    public double predictBothDirections() {
+        int i = nextIndex();
+        predictor.predict(locations[i].x, locations[i].y, velocities[i], headings[i], waves[i]);
+        return predictor.clockwise.x + predictor.counterClockwise.x;
+    }
+
+    @Benchmark
+    public double wallSmoothing() {
+        int i = nextIndex();
+        double angle = WaveSurfing.absoluteBearing(waves[i].fireLocation, locations[i]) + waves[i].direction * (Math.PI / 2);
+        return WaveSurfing.wallSmoothing(locations[i].x, locations[i].y, angle, waves[i].direction);
+    }
+
+    @Benchmark
+    public double iterativeWallSmoothing() {
+        int i = nextIndex();
+        double angle = WaveSurfing.absoluteBearing(waves[i].fireLocation, locations[i]) + waves[i].direction * (Math.PI / 2);
+        return WaveSurfing.iterativeWallSmoothing(locations[i].x, locations[i].y, angle, waves[i].direction);
+    }
+
+    @Benchmark
+    public double wallSmoothingCorner() {
+        int i = nextIndex();
+        return WaveSurfing.wallSmoothing(cornerX[i], cornerY[i], cornerAngles[i], waves[i].direction);
+    }
+
+    @Benchmark
+    public double iterativeWallSmoothingCorner() {
+        int i = nextIndex();
+        return WaveSurfing.iterativeWallSmoothing(cornerX[i], cornerY[i], cornerAngles[i], waves[i].direction);
+    }
+
+    @Benchmark
+    public int getFactorIndex() {
+        int i = nextIndex();
+        return WaveSurfing.getFactorIndex(waves[i], predictedLocations[i]);
+    }
+}
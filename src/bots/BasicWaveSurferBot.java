@@ -1,55 +1,52 @@
 package bots;
 
+import learning.BackgroundLearner;
+import learning.NStepBuffer;
+import learning.RewardAccumulator;
+import learning.TransitionQueue;
+import learning.WeightSnapshot;
 import lookupTable.LUT;
+import neuralNet.EncogNetwork;
+import neuralNet.TargetNetwork;
+import neuralNet.WeightCheckpoint;
+import policy.GreedyPolicy;
+import profiling.DecisionEvent;
+import profiling.InputRecorder;
+import profiling.TDUpdateEvent;
+import profiling.TickProfiler;
+import stats.Counter;
+import stats.CsvStatsSink;
+import stats.Gauge;
+import stats.Mean;
+import stats.StatsRegistry;
 import org.encog.engine.network.activation.ActivationSigmoid;
 import org.encog.mathutil.randomize.ConsistentRandomizer;
-import org.encog.persist.EncogDirectoryPersistence;
-import org.encog.ml.data.MLData;
-import org.encog.ml.data.MLDataSet;
-import org.encog.ml.data.basic.BasicMLData;
-import org.encog.ml.data.basic.BasicMLDataSet;
 import org.encog.neural.networks.BasicNetwork;
 import org.encog.neural.networks.layers.BasicLayer;
-import org.encog.neural.networks.training.propagation.sgd.StochasticGradientDescent;
-import org.encog.neural.networks.training.propagation.sgd.update.MomentumUpdate;
 import robocode.*;
 import robocode.util.Utils;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
-import java.awt.geom.Rectangle2D;
 import java.io.*;
-import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.Random;
 
+import static bots.WaveSurfing.*;
 import static robocode.util.Utils.normalRelativeAngle;
 
 public class BasicWaveSurferBot extends AdvancedRobot{
 
-    private static int BINS = 47;
-    private static double _surfStats[] = new double[BINS];
     private Point2D.Double _myLocation;              // our bot's location
-    private Point2D.Double _enemyLocation;           // enemy's location
 
     // Wave related
-    private ArrayList _enemyWaves;
-    private ArrayList _surfDirections;
-    private ArrayList _surfAbsBearings;
+    private final EnemyWaveStore _enemyWaves = new EnemyWaveStore();
+    private static final int SURF_HISTORY = 3;     // the waves use our direction and bearing of two ticks ago
+    private EnemyRegistry _enemies;                 // the enemies' locations, energy and our surf history per enemy
+    private FireDetector _fireDetector;             // turns the enemies' energy drops into waves
+    private final MovementPredictor predictor = new MovementPredictor();
+    private final DangerMemo dangerMemo = new DangerMemo(dangerMemoHits, dangerMemoMisses);
+    private double dangerLeft, dangerRight;     // set by checkDanger
 
-    // Keep track of enemy energy
-    private static double _oppEnergy = 100.0;
-
-
-    /** This is a rectangle that represents an 800x600 battle field,
-     * used for a simple, iterative WallSmoothing method (by PEZ).
-     * If you're not familiar with WallSmoothing, the wall stick indicates
-     * the amount of space we try to always have on either end of the tank
-     * (extending straight out the front or back) before touching a wall.
-     */
-    private static Rectangle2D.Double _fieldRect
-            = new java.awt.geom.Rectangle2D.Double(18, 18, 764, 564);
-    private static double WALL_STICK = 140;
     // constants for arena dimension
     private static final double arenaWidth = 800;
     private static final double arenaHeight = 600;
@@ -62,6 +59,9 @@ public class BasicWaveSurferBot extends AdvancedRobot{
     }
 
     private RobotActions selectedAction;
+    // values() copies the array on each call, so we keep our own
+    private static final RobotActions[] ACTIONS = RobotActions.values();
+    private static final Random rand = new Random();
 
 
     /*
@@ -125,35 +125,104 @@ Initialize the instance of look up table
     // previous and current Q value
     private static double currentQ = 0.0;
 
+    // Policy only: decide with the greedy policy compiled at the end of a learning battle (one table read per decision).
+    // The network inputs are continuous, so the policy covers them on a grid of POLICY_STEP (50 pixels)
+    private static final boolean policyOnly = false;
+    private static final String policyFile = "policy.bin";
+    private static final double POLICY_STEP = 0.5;
+    private static GreedyPolicy policy;
+
     // Control exploring and learning
-    private static final boolean learning = true;
+    private static final boolean learning = !policyOnly;
     private static final double epsilon = 0.05; // % exploration, >0 indicates exploration is turned on
 
+    // Target network: bootstrap Q values come from a frozen copy of the network
+    private static final boolean useTargetNetwork = true;
+    private static final int TARGET_SYNC_STEPS = 500;   // back steps between two hard updates of the target network
+    private static final double TARGET_TAU = 0.0;       // >0 blends the weights on every back step (Polyak averaging) instead
+
+    // Background learning: back steps only queue the transition, a learner thread trains the network
+    // and publishes new weights, so the robot's thread only runs inference.
+    // Robocode allows a robot a few threads of its own but stops them at the end of the round, so the
+    // learner runs for one round at a time: it is stopped and its queue drained before the round ends
+    private static final boolean backgroundLearning = false;
+    private static final int TRANSITION_QUEUE_SIZE = 1024;
+    private static final int PUBLISH_INTERVAL = 20;     // updates between two weight snapshots
+
+    // Sum up all the rewards of a turn and do a single back step at the next decision
+    private static final boolean aggregateRewards = true;
+    private static RewardAccumulator rewards = new RewardAccumulator();
+    // the last enemy is dead: the rewards of the remaining turns go into one terminal back step at the end of the round
+    private boolean episodeOver = false;
+
+    // n-step returns: >1 bootstraps from the Q value n back steps later (not used by the background learner)
+    private static final int N_STEP = 1;
+    private static NStepBuffer nStepBuffer = new NStepBuffer(N_STEP, NUM_STATES + NUM_ACTIONS, ALPHA, GAMMA);
+
     /*
     Statistics of learning
      */
     private static final int AVERAGE_SAMPLE_SIZE = 1000; // number of rounds which average is calculated
     private static int sampleCount = 0;
-    private static int numWins = 0;
     // Total accumulated rewards
-    private static double avgSumRewards = 0.0;
-    private static int numBackSteps = 0;
-    private static double averageSumQ = 0.0;
+    private static double roundRewards = 0.0;
+
+    // one line of statistics.txt per AVERAGE_SAMPLE_SIZE rounds, in this order
+    private static StatsRegistry stats = new StatsRegistry();
+    private static Gauge numRounds = stats.gauge("rounds");
+    private static Counter numWins = stats.counter("wins");
+    private static Mean averageSumQ = stats.mean("errorQ");
+    private static Mean avgSumRewards = stats.mean("rewardsPerRound");
+    private static Counter numBackSteps = stats.counter("backSteps");
+    private static Counter[] eventCounts = new Counter[RewardAccumulator.Event.values().length];
+    static {
+        for (RewardAccumulator.Event event : RewardAccumulator.Event.values()) {
+            eventCounts[event.ordinal()] = stats.counter(event.name());
+        }
+    }
+    private static Counter dangerMemoHits = stats.counter("dangerMemoHits");
+    private static Counter dangerMemoMisses = stats.counter("dangerMemoMisses");
+    private static CsvStatsSink statsSink;
 
     // initialize the instance of LUT
 //    private static LUT myLUT = new LUT(NUM_STATES + NUM_ACTIONS, floors, ceilings);
 
     // declare the neural network
     private static BasicNetwork network = new BasicNetwork();
-    private static final String networkConfig = "network.eg";
+    private static EncogNetwork onlineNetwork;
+    private static TargetNetwork<EncogNetwork> targetNetwork;
+
+    // background learning: the learner owns onlineNetwork, the robot decides with actorNetwork
+    private static EncogNetwork actorNetwork;
+    private static TransitionQueue transitions;
+    private static BackgroundLearner<EncogNetwork> learner;
+    private static long actorVersion = -1;
+
+    // checkpoints of the network weights, written every CHECKPOINT_INTERVAL rounds and at the end of the battle
+    private static final String checkpointFile = "network.bin";
+    private static final int CHECKPOINT_INTERVAL = 50;
+    private static final boolean loadCheckpoint = false;    // resume training from the last checkpoint
+
+    // Segmented hit statistics of the enemy's gun, kept across rounds and saved to surfStatsFile with the checkpoints
+    private static final String surfStatsFile = "surfStats.bin";
+    private static SurfStats surfStats;
+
+    // Per-turn latency of the main stages, appended to latency.txt at the end of each round.
+    // Off by default: the file grows by a summary every round and counts against the robot's data quota
+    private static final boolean profiling = false;
+    private static TickProfiler profiler = new TickProfiler(profiling);
+
+    // Record the network inputs and surfed waves to inputs.csv, to replay them in the benchmarks
+    private static final boolean recordInputs = false;
+    private static InputRecorder inputRecorder = new InputRecorder();
+    private static final double[] waveInput = new double[10];
 
     /*
      Robocode Main
       */
     public void run() {
-        _enemyWaves = new ArrayList();
-        _surfDirections = new ArrayList();
-        _surfAbsBearings = new ArrayList();
+        _enemies = new EnemyRegistry(getOthers(), SURF_HISTORY);
+        _fireDetector = new FireDetector(_enemies, _enemyWaves, arenaWidth, arenaHeight);
 
         setAdjustGunForRobotTurn(true);
         setAdjustRadarForGunTurn(true);
@@ -169,8 +238,8 @@ Initialize the instance of look up table
         // initialize the action to going up
         selectedAction = RobotActions.AWAY;
 
-        // load or configure the neural network
-        if(getRoundNum() == 0) {
+        // configure the neural network; it stays in memory for the following rounds
+        if(onlineNetwork == null) {
             network.addLayer(new BasicLayer(null, true, 9));
             network.addLayer(new BasicLayer(new ActivationSigmoid(), true, 17));
             network.addLayer(new BasicLayer(new ActivationSigmoid(), false, 1));
@@ -178,9 +247,50 @@ Initialize the instance of look up table
             network.reset();
             // assign random weights [-0.05, 0.05] to the network
             new ConsistentRandomizer(-0.05,0.05, (int)System.currentTimeMillis()%1000).randomize(network);
-        } else{
-            // load the network config file
-            network = (BasicNetwork)EncogDirectoryPersistence.loadObject(getDataFile(networkConfig));
+            onlineNetwork = new EncogNetwork(network, 0.01, 0.8);
+            if (loadCheckpoint && loadableDataFile(checkpointFile).exists()) {
+                try {
+                    WeightCheckpoint.read(onlineNetwork, loadableDataFile(checkpointFile));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            // the target network starts as an exact copy
+            targetNetwork = new TargetNetwork<>(onlineNetwork.copy(), TARGET_SYNC_STEPS, TARGET_TAU);
+        }
+
+        // start the learner thread for this round; it is stopped in onDeath or onRoundEnded
+        if (learning && backgroundLearning) {
+            if (learner == null) {
+                actorNetwork = onlineNetwork.copy();
+                actorVersion = -1;
+                transitions = new TransitionQueue(TRANSITION_QUEUE_SIZE, NUM_STATES + NUM_ACTIONS, NUM_ACTIONS);
+                learner = new BackgroundLearner<>(onlineNetwork, useTargetNetwork ? targetNetwork : null, transitions,
+                        NUM_STATES + NUM_ACTIONS, NUM_ACTIONS, ALPHA, GAMMA, PUBLISH_INTERVAL);
+            }
+            learner.start();
+        }
+
+        if (surfStats == null) {
+            surfStats = new SurfStats();
+            if (loadableDataFile(surfStatsFile).exists()) {
+                try {
+                    surfStats.load(loadableDataFile(surfStatsFile));
+                } catch (IOException e) {
+                    // start from empty stats
+                    surfStats.clear();
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        if (policyOnly && policy == null) {
+            try {
+                policy = GreedyPolicy.load(loadableDataFile(policyFile));
+            } catch (IOException e) {
+                // without a policy we fall back to the greedy choice over the network
+                e.printStackTrace();
+            }
         }
 
         // initialize the LUT
@@ -193,66 +303,55 @@ Initialize the instance of look up table
 
     @Override
     public void onScannedRobot(ScannedRobotEvent e) {
+        long start = profiler.start();
         _myLocation = new Point2D.Double(getX(), getY());
 
-        // our current lateral velocity
-        double lateralVelocity = getVelocity()*Math.sin(e.getBearingRadians());
         double absBearing = e.getBearingRadians() + getHeadingRadians();
 
         // infinite lock
         setTurnRadarRightRadians(Utils.normalRelativeAngle(absBearing
                 - getRadarHeadingRadians()) * 2);
 
-        _surfDirections.add(0, (lateralVelocity >= 0) ? 1 : -1);
-        _surfAbsBearings.add(0, absBearing + Math.PI);
+        // the enemy's new location and energy; the previous ones are kept as the source of a wave it fired
+        int enemy = _enemies.update(e.getName(), getTime(), absBearing, e.getDistance(), e.getHeadingRadians(),
+                e.getVelocity(), e.getEnergy(), _myLocation.x, _myLocation.y);
+        // in a melee, the states and the aim follow the closest enemy
+        int target = _enemies.closest();
 
         /*
          check if enemy has fired
           */
-        double bulletPower = _oppEnergy - e.getEnergy();
-        if (bulletPower < 3.01 && bulletPower > 0.09
-                && _surfDirections.size() > 2) {
-            // enemy has fired, we create a new wave
-            EnemyWave ew = new EnemyWave();
-
-            // we keep a record of fire time, velocity, distance traveled, direction, angle and the fire location
-            ew.fireTime = getTime() - 1;
-            ew.bulletVelocity = bulletVelocity(bulletPower);
-            ew.distanceTraveled = bulletVelocity(bulletPower);
-            ew.direction = (Integer) _surfDirections.get(2);
-            ew.directAngle = (Double) _surfAbsBearings.get(2);
-            ew.fireLocation = (Point2D.Double)_enemyLocation.clone(); // last tick
-
-            _enemyWaves.add(ew);    // add the bullet to our wave collection
-        }
+        _fireDetector.onScan(enemy, getTime(), _myLocation.x, _myLocation.y, getVelocity(), getHeadingRadians());
         if(_enemyWaves.isEmpty()) enemyFired = 0;
         else enemyFired = 1;
 
-        // update the enemy energy
-        _oppEnergy = e.getEnergy();
-
-        // update after EnemyWave detection, because that needs the previous
-        // enemy location as the source of the wave
-        _enemyLocation = project(_myLocation, absBearing, e.getDistance());
-
         updateWaves();
+        profiler.stop(TickProfiler.Stage.SCAN, start);
 
         // we update the state action until all actions are done
         if (getDistanceRemaining()==0 && getGunTurnRemaining() == 0 && getTurnRemaining() == 0){
             // update the state action table
-            updateStateActionTable(e);
+            updateStateActionTable(target);
 
             // update the our current state action based on Q-value
+            start = profiler.start();
             updateCurrentStateAction();
+            profiler.stop(TickProfiler.Stage.UPDATE_STATE_ACTION, start);
+
+            // one back step for everything that happened since the previous decision
+            if (learning && aggregateRewards && !episodeOver && rewards.hasPending()) backStep(rewards.drain());
 
             // perform actions
             switch (selectedAction) {
                 case FIRE:  // aim at the energy and fire
-                    aimFire(e.getBearingRadians());
+                    aimFire(normalRelativeAngle(_enemies.absBearingFrom(target, _myLocation.x, _myLocation.y)
+                            - getHeadingRadians()));
                     break;
 
                 case SURF:    // do wave surfing
+                    start = profiler.start();
                     doSurfing();
+                    profiler.stop(TickProfiler.Stage.SURF, start);
                     break;
 
                 case CLOSE:  // change heading to 180 (down)
@@ -269,113 +368,171 @@ Initialize the instance of look up table
 
     @Override
     public void onHitByBullet(HitByBulletEvent e) {
-        // If the _enemyWaves collection is empty, we must have missed the
-        // detection of this wave somehow.
-        if (!_enemyWaves.isEmpty()) {
-            Point2D.Double hitBulletLocation = new Point2D.Double(
-                    e.getBullet().getX(), e.getBullet().getY());
-
-            EnemyWave hitWave = null;
-            // look through the EnemyWaves, and find one that could've hit us.
-            for (Object _enemyWave : _enemyWaves) {
-                EnemyWave ew = (EnemyWave) _enemyWave;
-
-                if (Math.abs(ew.distanceTraveled -
-                        _myLocation.distance(ew.fireLocation)) < 50
-                        && Math.abs(bulletVelocity(e.getBullet().getPower())
-                        - ew.bulletVelocity) < 0.001) {
-                    hitWave = ew;
-                    break;
-                }
-            }
-
-            if (hitWave != null) {
-                logHit(hitWave, hitBulletLocation);
-                // We can remove this wave now, of course.
-                _enemyWaves.remove(_enemyWaves.lastIndexOf(hitWave));
-            }
-        }
+        // If no wave matches, we must have missed the detection of this wave somehow.
+        EnemyWave hitWave = _fireDetector.onHitByBullet(e.getName(), e.getBullet().getPower());
+        if (hitWave != null) logHit(hitWave, new Point2D.Double(e.getBullet().getX(), e.getBullet().getY()));
 
         /*
         learning related: calculate the reward and do a back-step
          */
         double bulletPower = e.getPower();
         double reward = -(Rules.getBulletDamage(bulletPower) + Rules.getBulletHitBonus(bulletPower))*rewardFactor;
-        if(learning)backStep(reward);
-        numBackSteps++;
-//        numHitByBullet++;
+        if(learning) reward(RewardAccumulator.Event.HIT_BY_BULLET, reward);
+    }
+
+    @Override
+    public void onBulletHitBullet(BulletHitBulletEvent e) {
+        // our bullet shot down an enemy bullet: its wave is gone, but it still shows where the enemy aimed
+        Bullet bullet = e.getHitBullet();
+        EnemyWave hitWave = _fireDetector.onBulletHitBullet(bullet.getName(), bullet.getPower(), bullet.getX(), bullet.getY());
+        if (hitWave != null) logHit(hitWave, new Point2D.Double(bullet.getX(), bullet.getY()));
     }
 
     @Override
     public void onHitWall(HitWallEvent event) {
         double reward = - 4 * rewardFactor;
-        if(learning) backStep(reward);
-        numBackSteps++;
-//        numWallHit++;
+        if(learning) reward(RewardAccumulator.Event.HIT_WALL, reward);
     }
 
     @Override
     public void onHitRobot(HitRobotEvent event) {
+        _fireDetector.onHitRobot(event.getName());
         double reward = - 1 * rewardFactor;
-        if(learning) backStep(reward);
-        numBackSteps++;
+        if(learning) reward(RewardAccumulator.Event.HIT_ROBOT, reward);
     }
 
     @Override
     public void onDeath(DeathEvent event) {
         double reward = -100 * rewardFactor;
-        if(learning) backStep(reward);
-        numBackSteps++;
+        if(learning) terminalReward(RewardAccumulator.Event.DEATH, reward);
+        stopLearner();
     }
 
     @Override
     public void onBulletHit(BulletHitEvent event) {
+        _fireDetector.onBulletHit(event.getName(), event.getBullet().getPower());
         double reward = Rules.getBulletDamage(gunPower)*rewardFactor;
-        if(learning)backStep(reward);
-        numBackSteps++;
-//        numBulletHit++;
+        if(learning) reward(RewardAccumulator.Event.BULLET_HIT, reward);
     }
 
     @Override
     public void onRobotDeath(RobotDeathEvent event) {
+        _enemies.markDead(event.getName());
         double reward = 100 * rewardFactor;
-        if(learning) backStep(reward);
-        numBackSteps++;
+        // in a melee only the last death ends the episode
+        if (getOthers() == 0) episodeOver = true;
+        if (learning) reward(RewardAccumulator.Event.ROBOT_DEATH, reward);
     }
 
     @Override
     public void onWin(WinEvent event) {
-        numWins++;
+        numWins.increment();
+    }
+
+    @Override
+    public void onSkippedTurn(SkippedTurnEvent event) {
+        profiler.skippedTurn();
     }
 
     @Override
     public void onRoundEnded(RoundEndedEvent event) {
         sampleCount++;
+        // the rewards left since the last back step: the terminal update of a won round, or the last step of a time out
+        if (learning && rewards.hasPending()) lastStep(rewards.drain(), episodeOver);
+        episodeOver = false;
+        if (learning && !backgroundLearning && N_STEP > 1) flushNStep(currentQ);
+        stopLearner();
+
         /*
          auto-save for each 500 samples
           */
+        avgSumRewards.add(roundRewards);
+        roundRewards = 0;
         if (((sampleCount % AVERAGE_SAMPLE_SIZE == 0) && sampleCount != 0)) {
-            // calculate average error Q
-            averageSumQ = averageSumQ / numBackSteps;
-            avgSumRewards = avgSumRewards / AVERAGE_SAMPLE_SIZE;
-
             try {
-                saveStats();    // save the statistics
+                saveStats();    // save the statistics and start a new window
             } catch (IOException e) {
                 e.printStackTrace();
             }
-            // reset number of back step and averageErrorQ
-            avgSumRewards = 0;
-            numBackSteps = 0;
-            averageSumQ = 0;
-//            numWallHit = 0;
-//            numBulletHit = 0;
-//            numHitByBullet = 0;
-            numWins = 0;
         }
 
         // save our neural network info
-        EncogDirectoryPersistence.saveObject(getDataFile(networkConfig), network);
+        if (sampleCount % CHECKPOINT_INTERVAL == 0) {
+            if (learning) saveCheckpoint();
+            saveSurfStats();
+        }
+
+        if (profiling) {
+            try {
+                saveLatency(event.getRound());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (recordInputs) {
+            try {
+                saveInputs();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void onBattleEnded(BattleEndedEvent event) {
+        stopLearner();
+        if (learning) {
+            saveCheckpoint();
+            try {
+                savePolicy();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        saveSurfStats();
+        try {
+            if (statsSink != null) statsSink.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        statsSink = null;
+    }
+
+    // compile the greedy policy of the network over the grid of the floors and ceilings, for policy-only battles
+    private void savePolicy() throws IOException {
+        double[] gridFloors = new double[NUM_STATES];
+        double[] steps = new double[NUM_STATES];
+        int[] sizes = new int[NUM_STATES];
+        for (int i = 0; i < NUM_STATES; i++) {
+            gridFloors[i] = floors[i];
+            steps[i] = POLICY_STEP;
+            sizes[i] = (int) Math.round((ceilings[i] - floors[i]) / POLICY_STEP) + 1;
+        }
+        GreedyPolicy greedy = new GreedyPolicy(gridFloors, steps, sizes, NUM_ACTIONS);
+        double[][] templates = new double[NUM_ACTIONS][];
+        for (int i = 0; i < NUM_ACTIONS; i++) templates[i] = stateActionTable[i].clone();
+        // the learner thread has stopped, so the online network is ours again
+        greedy.compile(onlineNetwork, templates);
+        greedy.save(new RobocodeFileOutputStream(getDataFile(policyFile + ".tmp")));
+        replaceDataFile(policyFile);
+    }
+
+    // stop the learner thread before Robocode kills it, and train on what it left in the queue;
+    // the online network is the robot thread's again until the next round starts the learner
+    private void stopLearner() {
+        if (learner == null) return;
+        learner.stop();
+        learner.drain();    // also what was queued after an earlier stop, e.g. in onDeath
+    }
+
+    // the learner has been stopped by then, so the online network has every update
+    private void saveCheckpoint() {
+        try {
+            WeightCheckpoint.write(onlineNetwork, sampleCount, new RobocodeFileOutputStream(getDataFile(checkpointFile + ".tmp")), checkpointFile);
+            replaceDataFile(checkpointFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
 //    @Override
@@ -390,15 +547,15 @@ Initialize the instance of look up table
     /*
                 Learning related helper methods
                  */
-    private void updateStateActionTable(ScannedRobotEvent event) {
+    private void updateStateActionTable(int enemy) {
         // update position variables
         double xFromCenter = getX() - arenaWidth / 2.0;
         double yFromCenter = getY() - arenaHeight / 2.0;
-        double enemyXFromCenter = xFromCenter + Math.sin(event.getBearingRadians() + getHeadingRadians()) * event.getDistance();
-        double enemyYFromCenter = yFromCenter + Math.cos(event.getBearingRadians() + getHeadingRadians()) * event.getDistance();
+        double enemyXFromCenter = _enemies.getX(enemy) - arenaWidth / 2.0;
+        double enemyYFromCenter = _enemies.getY(enemy) - arenaHeight / 2.0;
 
         // update the state action table
-        for (RobotActions i : RobotActions.values()) {
+        for (RobotActions i : ACTIONS) {
             stateActionTable[i.ordinal()][0] = Math.round(enemyXFromCenter)/100.0;
             stateActionTable[i.ordinal()][1] = Math.round(enemyYFromCenter)/100.0;
             stateActionTable[i.ordinal()][2] = Math.round(xFromCenter)/100.0;
@@ -413,16 +570,32 @@ Initialize the instance of look up table
     }
 
     private void updateCurrentStateAction() {
+        DecisionEvent event = DecisionEvent.start();
+        boolean explored = false;
         // store previous state action
         System.arraycopy(currentStateAction, 0, previousStateAction, 0, NUM_STATES + NUM_ACTIONS);
 
         // initialize max Q to -infinity
         double maxQ = Double.NEGATIVE_INFINITY;
+        double maxTargetQ = Double.NEGATIVE_INFINITY;
         double tempQ;
-        Random rand = new Random();
+
+        if (policyOnly && policy != null) {
+            // every row of the table holds the current state
+            selectedAction = ACTIONS[policy.actionFor(stateActionTable[0])];
+            System.arraycopy(stateActionTable[selectedAction.ordinal()], 0, currentStateAction, 0, NUM_STATES + NUM_ACTIONS);
+            event.record(currentStateAction, selectedAction.name(), Double.NaN, false);
+            return;
+        }
+
+        // pick up the latest weights from the learner thread
+        if (learning && backgroundLearning) refreshActorNetwork();
 
         // Get Q value for all (state, action) pairs for current state
-        for (RobotActions action : RobotActions.values()) {
+        for (RobotActions action : ACTIONS) {
+            // the bootstrap value for the next back step comes from the target network
+            if (useTargetNetwork && !backgroundLearning) maxTargetQ = Math.max(maxTargetQ, targetNetwork.outputFor(stateActionTable[action.ordinal()]));
+
             // Use the LUT to find the Q values
             // select the action with max Q
             switch (action) {
@@ -471,7 +644,8 @@ Initialize the instance of look up table
                 int i = rand.nextInt(NUM_ACTIONS);  //generates a random number between 0 and NUM_ACTIONS-1
                 currentQ = maxQ;
                 System.arraycopy(stateActionTable[i], 0, currentStateAction, 0, NUM_STATES + NUM_ACTIONS);
-                selectedAction = RobotActions.values()[i];
+                selectedAction = ACTIONS[i];
+                explored = true;
             } else{
                 currentQ = maxQ;
                 System.arraycopy(stateActionTable[selectedAction.ordinal()], 0, currentStateAction, 0, NUM_STATES + NUM_ACTIONS);
@@ -480,102 +654,95 @@ Initialize the instance of look up table
             currentQ = maxQ;
             System.arraycopy(stateActionTable[selectedAction.ordinal()], 0, currentStateAction, 0, NUM_STATES + NUM_ACTIONS);
         }
+        if (useTargetNetwork && !backgroundLearning) currentQ = maxTargetQ;
+        event.record(currentStateAction, selectedAction.name(), maxQ, explored);
+        if (recordInputs) inputRecorder.add(InputRecorder.NN, currentStateAction);
+    }
+
+    // collect the reward for the next decision, or do the back step right away if rewards are not aggregated
+    private void reward(RewardAccumulator.Event event, double reward) {
+        eventCounts[event.ordinal()].increment();
+        rewards.add(reward);
+        if (!aggregateRewards && !episodeOver) backStep(rewards.drain());
     }
 
+    // we are dead, no more events will come: the last step, with everything collected so far
+    private void terminalReward(RewardAccumulator.Event event, double reward) {
+        eventCounts[event.ordinal()].increment();
+        rewards.add(reward);
+        lastStep(rewards.drain(), true);
+    }
+
+    // the action we just left earned the reward; bootstrap from the one we are taking now
     private void backStep(double reward) {
-        numBackSteps++;
+        long start = profiler.start();
+        updateQ(previousStateAction, reward, currentQ, false);
+        profiler.stop(TickProfiler.Stage.BACK_STEP, start);
+    }
+
+    /**
+     * The rewards since the last decision were earned by the action still being taken, so the round's
+     * last step updates currentStateAction.
+     * @param terminal true if the round ended for us (death or last enemy dead): the target is the reward
+     *                 alone; otherwise (time out) it bootstraps from the action's own Q value
+     */
+    private void lastStep(double reward, boolean terminal) {
+        long start = profiler.start();
+        updateQ(currentStateAction, reward, terminal ? 0.0 : currentQ, terminal);
+        profiler.stop(TickProfiler.Stage.BACK_STEP, start);
+    }
+
+    /**
+     * @param bootstrapQ The Q value of the next state (not used by the learner thread, which computes its own)
+     * @param terminal   true if there is no next state to bootstrap from
+     */
+    private void updateQ(double[] stateAction, double reward, double bootstrapQ, boolean terminal) {
+        numBackSteps.increment();
+        if (backgroundLearning) {
+            // the learner thread does the update; if it falls behind, the transition is dropped
+            transitions.offer(stateAction, reward, stateActionTable, terminal);
+            roundRewards += reward;
+            return;
+        }
+        TDUpdateEvent event = TDUpdateEvent.start();
+        if (N_STEP > 1) {
+            boolean updates = nStepBuffer.pushUpdates();
+            double errorQ = nStepBuffer.push(stateAction, reward, bootstrapQ, onlineNetwork);
+            if (updates) averageSumQ.add(errorQ);
+            // nothing follows a terminal step: the steps still buffered get their returns now
+            if (terminal) flushNStep(0.0);
+            if (useTargetNetwork) targetNetwork.step(onlineNetwork);
+            event.record("NN", reward, errorQ);
+            roundRewards += reward;
+            return;
+        }
+
         // update Q value
-        double previousQ = predict(previousStateAction);    // NN
+        double previousQ = predict(stateAction);    // NN
 //        double previousQ = myLUT.outputFor(previousStateAction);    // LUT
-        double errorQ = ALPHA * (reward + GAMMA * currentQ - previousQ);
+        double errorQ = ALPHA * (reward + GAMMA * bootstrapQ - previousQ);
 
         // Neural Network
-        double[][] input = new double[][]{{0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0}};
-        input[0] = previousStateAction;
-        double[][] expectedOutput = new double[][]{{previousQ + errorQ}};
-
-        // set up the gradient descent
-        MLDataSet trainingSet = new BasicMLDataSet(input,expectedOutput);
-        final StochasticGradientDescent sgd = new StochasticGradientDescent(network, trainingSet);
-        // set learning rate
-        sgd.setLearningRate(0.01);
-        sgd.setMomentum(0.8);
-        sgd.setUpdateRule(new MomentumUpdate());
-
-        // learning
-        sgd.iteration();
+        onlineNetwork.train(stateAction, previousQ + errorQ);
+        if (useTargetNetwork) targetNetwork.step(onlineNetwork);
+        event.record("NN", reward, errorQ);
 
         // LUT
 //        myLUT.train(previousStateAction, previousQ+errorQ);
 
         // statistics
-        averageSumQ += errorQ;
-        avgSumRewards += reward;
+        averageSumQ.add(errorQ);
+        roundRewards += reward;
     }
 
-    /*
-    Strategies helper
-     */
-    class EnemyWave {
-        Point2D.Double fireLocation;
-        long fireTime;
-        double bulletVelocity, directAngle, distanceTraveled;
-        int direction;
-
-        EnemyWave() { }
+    // update the steps still in the n-step buffer, recording the error of each update
+    private void flushNStep(double bootstrapQ) {
+        while (nStepBuffer.size() > 0) averageSumQ.add(nStepBuffer.flushOne(bootstrapQ, onlineNetwork));
     }
 
-    /**
-     * fast wall smoothing algorithm
-     * x/y = current coordinates
-     * startAngle = absolute angle that tank starts off moving - this is the angle
-     *   they will be moving at if there is no wall smoothing taking place.
-     * orientation = 1 if orbiting enemy clockwise, -1 if orbiting counter-clockwise
-     * smoothTowardEnemy = 1 if smooth towards enemy, -1 if smooth away, 0 don't care
+    /*
+    Strategies helper
      */
-    private double wallSmoothing(double x, double y, double startAngle, int orientation) {
-
-        double angle = startAngle;
-
-        // in Java, (-3 MOD 4) is not 1, so make sure we have some excess
-        // positivity here
-        angle += (4*Math.PI);
-
-        double testX = x + (Math.sin(angle)*WALL_STICK);
-        double testY = y + (Math.cos(angle)*WALL_STICK);
-        double wallDistanceX = Math.min(x - 18, arenaWidth - x - 18);
-        double wallDistanceY = Math.min(y - 18, arenaHeight - y - 18);
-        double testDistanceX = Math.min(testX - 18, arenaWidth - testX - 18);
-        double testDistanceY = Math.min(testY - 18, arenaHeight - testY - 18);
-
-        double adjacent = 0;
-        int g = 0; // because I'm paranoid about potential infinite loops
-
-        while (!_fieldRect.contains(testX, testY) && g++ < 25) {
-            if (testDistanceY < 0 && testDistanceY < testDistanceX) {
-                // wall smooth North or South wall
-                angle = ((int)((angle + (Math.PI/2)) / Math.PI)) * Math.PI;
-                adjacent = Math.abs(wallDistanceY);
-            } else if (testDistanceX < 0 && testDistanceX <= testDistanceY) {
-                // wall smooth East or West wall
-                angle = (((int)(angle / Math.PI)) * Math.PI) + (Math.PI/2);
-                adjacent = Math.abs(wallDistanceX);
-            }
-
-            // use your own equivalent of (1 / POSITIVE_INFINITY) instead of 0.005
-            // if you want to stay closer to the wall ;)
-            angle += 1 *orientation*
-                    (Math.abs(Math.acos(adjacent/WALL_STICK)) + 0.005);
-
-            testX = x + (Math.sin(angle)*WALL_STICK);
-            testY = y + (Math.cos(angle)*WALL_STICK);
-            testDistanceX = Math.min(testX - 18, arenaWidth - testX - 18);
-            testDistanceY = Math.min(testY - 18, arenaHeight - testY - 18);
-        }
-
-        return angle; // you may want to normalize this
-    }
-
     private void aimFire(double enemyBearing) {
         double gunTurnAmount = normalRelativeAngle(enemyBearing + getHeadingRadians() - getGunHeadingRadians());
         setTurnGunRightRadians(gunTurnAmount);
@@ -583,28 +750,6 @@ Initialize the instance of look up table
             setFire(gunPower);
     }
 
-    private static Point2D.Double project(Point2D.Double sourceLocation,
-                                          double angle, double length) {
-        return new Point2D.Double(sourceLocation.x + Math.sin(angle) * length,
-                sourceLocation.y + Math.cos(angle) * length);
-    }
-
-    private static double absoluteBearing(Point2D.Double source, Point2D.Double target) {
-        return Math.atan2(target.x - source.x, target.y - source.y);
-    }
-
-    private static double limit(double min, double value, double max) {
-        return Math.max(min, Math.min(value, max));
-    }
-
-    private static double bulletVelocity(double power) {
-        return (20.0 - (3.0*power));
-    }
-
-    private static double maxEscapeAngle(double velocity) {
-        return Math.asin(8.0/velocity);
-    }
-
     private static void setBackAsFront(AdvancedRobot robot, double goAngle) {
         double angle = Utils.normalRelativeAngle(goAngle - robot.getHeadingRadians());
         if (Math.abs(angle) > (Math.PI/2)) {
@@ -626,126 +771,49 @@ Initialize the instance of look up table
 
     // update wave information
     private void updateWaves() {
-        for (int x = 0; x < _enemyWaves.size(); x++) {      // for all enemy bullets
-            EnemyWave ew = (EnemyWave)_enemyWaves.get(x);
-
-            // update the distance traveled
-            ew.distanceTraveled = (getTime() - ew.fireTime) * ew.bulletVelocity;
-
-            // remove the bullet if it has traveled enough distance
-            if (ew.distanceTraveled > _myLocation.distance(ew.fireLocation) + 50) {
-                _enemyWaves.remove(x);
-                x--;
-
-                // since we dodged a bullet do a back step here
-                double reward = 3*rewardFactor;
-                backStep(reward);
-            }
+        _fireDetector.update(getTime(), _myLocation.x, _myLocation.y);
+        // hits are logged and rewarded by their events, so only the dodged waves are left to handle
+        int dodged = _fireDetector.drainDodged();
+        if (dodged > 0) dangerMemo.invalidate();
+        for (int i = 0; i < dodged; i++) {
+            // since we dodged a bullet do a back step here
+            double reward = 3*rewardFactor;
+            if(learning) reward(RewardAccumulator.Event.WAVE_DODGED, reward);
         }
     }
 
     private EnemyWave getClosestSurfableWave() {
-        double closestDistance = 50000; //initialize to a big number
-        EnemyWave surfWave = null;
-
-        for (Object _enemyWave : _enemyWaves) {
-            EnemyWave ew = (EnemyWave) _enemyWave;
-
-            // update the distance between our robot and the wave
-            double distance = _myLocation.distance(ew.fireLocation)
-                    - ew.distanceTraveled;
-
-            // only surf if the bullet is not too close
-            if (distance > ew.bulletVelocity && distance < closestDistance) {
-                surfWave = ew;
-                closestDistance = distance;
-            }
-        }
-
-        return surfWave;
-    }
-
-    // Given the EnemyWave that the bullet was on, and the point where we
-    // were hit, calculate the index into our stat array for that factor.
-    private static int getFactorIndex(EnemyWave ew, Point2D.Double targetLocation) {
-        double offsetAngle = (absoluteBearing(ew.fireLocation, targetLocation)
-                - ew.directAngle);
-        double factor = Utils.normalRelativeAngle(offsetAngle)
-                / maxEscapeAngle(ew.bulletVelocity) * ew.direction;
-
-        return (int)limit(0,
-                (factor * ((BINS - 1) / 2)) + ((BINS - 1) / 2),
-                BINS - 1);
+        return _enemyWaves.closestSurfable();
     }
 
     // Given the EnemyWave that the bullet was on, and the point where we
     // were hit, update our stat array to reflect the danger in that area.
     private void logHit(EnemyWave ew, Point2D.Double targetLocation) {
-        int index = getFactorIndex(ew, targetLocation);
-
-        for (int x = 0; x < BINS; x++) {
-            // for the spot bin that we were hit on, add 1;
-            // for the bins next to it, add 1 / 2;
-            // the next one, add 1 / 5; and so on...
-            _surfStats[x] += 1.0 / (Math.pow(index - x, 2) + 1);
+        surfStats.logHit(ew.segment, getFactorIndex(ew, targetLocation));
+        dangerMemo.invalidate();    // the dangers have changed
+    }
+
+    // predict where the wave intercepts us in both directions, and look up the danger of each
+    // unless we already checked the same wave in a situation that falls into the same bins
+    private void checkDanger(EnemyWave surfWave) {
+        int bin = getFactorIndex(surfWave, _myLocation.x, _myLocation.y);
+        int ticks = DangerMemo.ticksToImpact(surfWave);
+        double velocity = getVelocity();
+        double heading = getHeadingRadians();
+        if (!dangerMemo.lookup(surfWave, bin, ticks, velocity, heading)) {
+            long start = profiler.start();
+            predictor.predict(_myLocation.x, _myLocation.y, velocity, heading, surfWave);
+            profiler.stop(TickProfiler.Stage.PREDICT_POSITION, start);
+
+            dangerMemo.store(surfWave, bin, ticks, velocity, heading,
+                    predictor.clockwise, predictor.counterClockwise,
+                    surfStats.danger(surfWave.segment,
+                            getFactorIndex(surfWave, predictor.counterClockwise.x, predictor.counterClockwise.y)),
+                    surfStats.danger(surfWave.segment,
+                            getFactorIndex(surfWave, predictor.clockwise.x, predictor.clockwise.y)));
         }
-    }
-
-    private Point2D.Double predictPosition(EnemyWave surfWave, int direction) {
-        Point2D.Double predictedPosition = (Point2D.Double)_myLocation.clone();
-        double predictedVelocity = getVelocity();
-        double predictedHeading = getHeadingRadians();
-        double maxTurning, moveAngle, moveDir;
-
-        int counter = 0; // number of ticks in the future
-        boolean intercepted = false;
-
-        do {    // the rest of these code comments are rozu's
-            moveAngle = wallSmoothing(predictedPosition.x, predictedPosition.y, absoluteBearing(surfWave.fireLocation,
-                            predictedPosition) + (direction * (Math.PI/2)), direction)
-                            - predictedHeading;
-            moveDir = 1;
-
-            if(Math.cos(moveAngle) < 0) {
-                moveAngle += Math.PI;
-                moveDir = -1;
-            }
-
-            moveAngle = Utils.normalRelativeAngle(moveAngle);
-
-            // maxTurning is built in like this, you can't turn more then this in one tick
-            maxTurning = Math.PI/720d*(40d - 3d*Math.abs(predictedVelocity));
-            predictedHeading = Utils.normalRelativeAngle(predictedHeading
-                    + limit(-maxTurning, moveAngle, maxTurning));
-
-            // this one is nice ;). if predictedVelocity and moveDir have
-            // different signs you want to breack down
-            // otherwise you want to accelerate (look at the factor "2")
-            predictedVelocity +=
-                    (predictedVelocity * moveDir < 0 ? 2*moveDir : moveDir);
-            predictedVelocity = limit(-8, predictedVelocity, 8);
-
-            // calculate the new predicted position
-            predictedPosition = project(predictedPosition, predictedHeading,
-                    predictedVelocity);
-
-            counter++;
-
-            if (predictedPosition.distance(surfWave.fireLocation) <
-                    surfWave.distanceTraveled + (counter * surfWave.bulletVelocity)
-                            + surfWave.bulletVelocity) {
-                intercepted = true;
-            }
-        } while(!intercepted && counter < 500);
-
-        return predictedPosition;
-    }
-
-    private double checkDanger(EnemyWave surfWave, int direction) {
-        int index = getFactorIndex(surfWave,
-                predictPosition(surfWave, direction));
-
-        return _surfStats[index];
+        dangerLeft = dangerMemo.dangerLeft;
+        dangerRight = dangerMemo.dangerRight;
     }
 
     /*
@@ -755,8 +823,8 @@ Initialize the instance of look up table
         EnemyWave surfWave = getClosestSurfableWave();
 
         if (surfWave == null) { return; }
-        double dangerLeft = checkDanger(surfWave, -1);
-        double dangerRight = checkDanger(surfWave, 1);
+        if (recordInputs) recordWave(surfWave);
+        checkDanger(surfWave);
 
         double goAngle = absoluteBearing(surfWave.fireLocation, _myLocation);
         if (dangerLeft < dangerRight) {
@@ -767,6 +835,20 @@ Initialize the instance of look up table
         setBackAsFront(this, goAngle);
     }
 
+    private void recordWave(EnemyWave surfWave) {
+        waveInput[0] = _myLocation.x;
+        waveInput[1] = _myLocation.y;
+        waveInput[2] = getVelocity();
+        waveInput[3] = getHeadingRadians();
+        waveInput[4] = surfWave.fireLocation.x;
+        waveInput[5] = surfWave.fireLocation.y;
+        waveInput[6] = surfWave.bulletVelocity;
+        waveInput[7] = surfWave.directAngle;
+        waveInput[8] = surfWave.distanceTraveled;
+        waveInput[9] = surfWave.direction;
+        inputRecorder.add(InputRecorder.WAVE, waveInput);
+    }
+
     private void move(boolean away){
         // Calculate the go angle that we are expected to be still perpendicular to the enemy
         EnemyWave surfWave = getClosestSurfableWave();
@@ -783,20 +865,68 @@ Initialize the instance of look up table
     Neural network related
      */
     private double predict(double[] inputData){
-        MLData input = new BasicMLData(inputData);
-        MLData output = network.compute(input);
-        return output.getData(0);
+        if (learning && backgroundLearning) return actorNetwork.outputFor(inputData);
+        return onlineNetwork.outputFor(inputData);
+    }
+
+    // copy the latest weights published by the learner thread into our inference network
+    private void refreshActorNetwork() {
+        WeightSnapshot snapshot = learner.getLatest();
+        if (snapshot.getVersion() != actorVersion) {
+            snapshot.applyTo(actorNetwork);
+            actorVersion = snapshot.getVersion();
+        }
     }
 
     /*
     save and load
      */
     private void saveStats() throws IOException {
-        DecimalFormat dfR = new DecimalFormat("0.00000");
-        OutputStreamWriter w = new OutputStreamWriter(new RobocodeFileOutputStream(getDataFile("statistics.txt").getAbsolutePath(), true));
-        BufferedWriter writer = new BufferedWriter(w);
-        writer.write(sampleCount + ", " + numWins + ", " + dfR.format(averageSumQ) + ", " + dfR.format(avgSumRewards) + "\n");
-        writer.flush();
+        // opened once, the header only goes into a new file
+        if (statsSink == null) {
+            File file = getDataFile("statistics.txt");
+            statsSink = new CsvStatsSink(new OutputStreamWriter(new RobocodeFileOutputStream(file.getAbsolutePath(), true)), file.length() == 0);
+        }
+        numRounds.set(sampleCount);
+        statsSink.write(stats.snapshotAndReset());
+    }
+
+    // the whole round summary is built in memory, so the file is opened and written only once per round
+    private void saveLatency(int round) throws IOException {
+        String summary = profiler.roundSummary(round);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new RobocodeFileOutputStream(getDataFile("latency.txt").getAbsolutePath(), true)));
+        writer.write(summary);
+        writer.close();
+    }
+
+    private void saveSurfStats() {
+        try {
+            surfStats.save(new RobocodeFileOutputStream(getDataFile(surfStatsFile + ".tmp")));
+            replaceDataFile(surfStatsFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // the robot writes a data file to a temporary copy first, then renames it over the old file,
+    // so a crash during the write never leaves half a file behind. renameTo can't replace a file everywhere,
+    // so the old file is deleted first: loadableDataFile covers a crash between the two
+    private void replaceDataFile(String fileName) throws IOException {
+        File file = getDataFile(fileName);
+        File temp = getDataFile(fileName + ".tmp");
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) throw new IOException("Can't replace " + file);
+    }
+
+    // the data file to load: if a save stopped between deleting the old file and the rename, the temporary copy is the only one
+    private File loadableDataFile(String fileName) {
+        File file = getDataFile(fileName);
+        File temp = getDataFile(fileName + ".tmp");
+        return (!file.exists() && temp.exists()) ? temp : file;
+    }
+
+    private void saveInputs() throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new RobocodeFileOutputStream(getDataFile("inputs.csv").getAbsolutePath(), true)));
+        writer.write(inputRecorder.drain());
         writer.close();
     }
 
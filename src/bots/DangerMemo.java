@@ -0,0 +1,94 @@
+package bots;
+
+import stats.Counter;
+
+/**
+ * Remembers the last danger check of a wave: the predicted positions in both directions and their dangers.
+ * The dangers are only as fine as the guess factor bins of SurfStats, so the check is keyed by what decides those
+ * bins rather than by the exact situation: the wave (instance and fire time, as waves are pooled), the bin we stand
+ * in on it, the ticks until it reaches us in steps of TICK_STEP, and our velocity and heading quantized to
+ * VELOCITY_STEP and HEADING_STEP. The check is reused on the following ticks as long as none of these change.
+ * Invalidate it when a wave is removed or a hit changes the stats.
+ *
+ * Usage:
+ *      int bin = getFactorIndex(wave, x, y);
+ *      int ticks = DangerMemo.ticksToImpact(wave);
+ *      if (!memo.lookup(wave, bin, ticks, velocity, heading)) {
+ *          ... predict and look up the dangers ...
+ *          memo.store(wave, bin, ticks, velocity, heading, clockwise, counterClockwise, dangerLeft, dangerRight);
+ *      }
+ *      ... memo.dangerLeft, memo.dangerRight ...
+ *
+ * Not thread safe: only the robot's thread may use it.
+ */
+public class DangerMemo {
+
+    public static final int TICK_STEP = 4;
+    public static final double VELOCITY_STEP = 1;
+    public static final double HEADING_STEP = 0.05;
+
+    private boolean valid = false;
+    private EnemyWave wave;
+    private long fireTime;
+    private int bin, ticks;
+    private long velocity, heading;   // quantized
+
+    /** Where the wave intercepts us orbiting clockwise (direction 1) and counter-clockwise (direction -1) */
+    public final Coordinate clockwise = new Coordinate();
+    public final Coordinate counterClockwise = new Coordinate();
+    /** The dangers of moving counter-clockwise (left) and clockwise (right) */
+    public double dangerLeft, dangerRight;
+
+    private final Counter hits, misses;
+
+    /**
+     * @param hits   Counts the lookups answered from the memo
+     * @param misses Counts the lookups that need a new prediction
+     */
+    public DangerMemo(Counter hits, Counter misses) {
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * @return The number of ticks until the wave reaches our current position
+     */
+    public static int ticksToImpact(EnemyWave wave) {
+        return (int) ((wave.distanceToMe - wave.distanceTraveled) / wave.bulletVelocity);
+    }
+
+    /**
+     * @param bin   The guess factor bin of our position on the wave
+     * @param ticks The ticks until the wave reaches us
+     * @return true if the stored check has the same key; its results are then in the public fields
+     */
+    public boolean lookup(EnemyWave wave, int bin, int ticks, double velocity, double heading) {
+        boolean hit = valid && wave == this.wave && wave.fireTime == fireTime && bin == this.bin
+                && ticks / TICK_STEP == this.ticks
+                && Math.round(velocity / VELOCITY_STEP) == this.velocity
+                && Math.round(heading / HEADING_STEP) == this.heading;
+        if (hit) hits.increment();
+        else misses.increment();
+        return hit;
+    }
+
+    public void store(EnemyWave wave, int bin, int ticks, double velocity, double heading,
+                      Coordinate clockwise, Coordinate counterClockwise, double dangerLeft, double dangerRight) {
+        this.wave = wave;
+        this.fireTime = wave.fireTime;
+        this.bin = bin;
+        this.ticks = ticks / TICK_STEP;
+        this.velocity = Math.round(velocity / VELOCITY_STEP);
+        this.heading = Math.round(heading / HEADING_STEP);
+        this.clockwise.set(clockwise.x, clockwise.y);
+        this.counterClockwise.set(counterClockwise.x, counterClockwise.y);
+        this.dangerLeft = dangerLeft;
+        this.dangerRight = dangerRight;
+        valid = true;
+    }
+
+    public void invalidate() {
+        valid = false;
+        wave = null;
+    }
+}
@@ -0,0 +1,287 @@
+package bots;
+
+import util.DoubleRingBuffer;
+import util.IntRingBuffer;
+
+import java.util.HashMap;
+
+/**
+ * What we know of each enemy, for one-on-one and melee battles alike. Each robot gets a slot the first time it is
+ * scanned; the slot indexes flat arrays sized at battle start (with getOthers()), so a scan costs one map lookup
+ * and a few array writes however many robots there are.
+ *
+ * Per enemy it keeps the latest and previous scan (location, energy), the history of the enemy's velocity and heading,
+ * and the history of our movement relative to it that the waves it fires are built from.
+ *
+ * Usage:
+ *      enemies = new EnemyRegistry(getOthers(), HISTORY);    // in run()
+ *      int enemy = enemies.update(e.getName(), getTime(), absBearing, e.getDistance(), ...);
+ *      enemies.lateralDirections(enemy).push(...);
+ *      if (enemies.getEnergyDrop(enemy) > 0.09) ... fired from enemies.getPreviousX(enemy), getPreviousY(enemy)
+ *
+ * Not thread safe: only the robot's thread may use it.
+ */
+public class EnemyRegistry {
+
+    private final HashMap<String, Integer> slots;
+    private final String[] names;
+    private final boolean[] alive;
+    private final long[] lastScanTime;
+    private final double[] x, y, previousX, previousY;
+    private final double[] energy, previousEnergy;
+    private final double[] distance, absBearing, heading, velocity;
+    // the enemy's kinematic history
+    private final DoubleRingBuffer[] velocities, headings;
+    // our movement relative to the enemy: the sources of its waves
+    private final IntRingBuffer[] lateralDirections;
+    private final DoubleRingBuffer[] bearingsFromEnemy, lateralVelocities;
+    private final IntRingBuffer[] surfSegments;
+    private int size = 0;
+    private int numAlive = 0;
+    // the living enemy with the shortest scanned distance, kept up to date by update and markDead
+    private int closest = -1;
+
+    /**
+     * @param capacity The number of enemies, getOthers() at the start of the battle
+     * @param history The number of scans of history kept per enemy
+     */
+    public EnemyRegistry(int capacity, int history) {
+        capacity = Math.max(1, capacity);
+        slots = new HashMap<>(2 * capacity);
+        names = new String[capacity];
+        alive = new boolean[capacity];
+        lastScanTime = new long[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        previousX = new double[capacity];
+        previousY = new double[capacity];
+        energy = new double[capacity];
+        previousEnergy = new double[capacity];
+        distance = new double[capacity];
+        absBearing = new double[capacity];
+        heading = new double[capacity];
+        velocity = new double[capacity];
+        velocities = new DoubleRingBuffer[capacity];
+        headings = new DoubleRingBuffer[capacity];
+        lateralDirections = new IntRingBuffer[capacity];
+        bearingsFromEnemy = new DoubleRingBuffer[capacity];
+        lateralVelocities = new DoubleRingBuffer[capacity];
+        surfSegments = new IntRingBuffer[capacity];
+        for (int i = 0; i < capacity; i++) {
+            velocities[i] = new DoubleRingBuffer(history);
+            headings[i] = new DoubleRingBuffer(history);
+            lateralDirections[i] = new IntRingBuffer(history);
+            bearingsFromEnemy[i] = new DoubleRingBuffer(history);
+            lateralVelocities[i] = new DoubleRingBuffer(history);
+            surfSegments[i] = new IntRingBuffer(history);
+        }
+    }
+
+    /**
+     * Record a scan. The previous location and energy of the enemy are kept; on its first scan they are the
+     * scanned ones.
+     * @param absBearing Absolute bearing from us to the enemy in radians
+     * @param myX Our x
+     * @param myY Our y
+     * @return The slot of the enemy
+     * @throws IllegalStateException if there are more enemies than the capacity
+     */
+    public int update(String name, long time, double absBearing, double distance, double heading, double velocity,
+                      double energy, double myX, double myY) {
+        int slot = slotOf(name);
+        double enemyX = myX + Math.sin(absBearing) * distance;
+        double enemyY = myY + Math.cos(absBearing) * distance;
+        if (slot < 0) {
+            if (size == names.length)
+                throw new IllegalStateException("More than " + names.length + " enemies, scanned " + name);
+            slot = size++;
+            slots.put(name, slot);
+            names[slot] = name;
+            alive[slot] = true;
+            numAlive++;
+            previousX[slot] = enemyX;
+            previousY[slot] = enemyY;
+            previousEnergy[slot] = energy;
+        } else {
+            previousX[slot] = x[slot];
+            previousY[slot] = y[slot];
+            previousEnergy[slot] = this.energy[slot];
+        }
+        lastScanTime[slot] = time;
+        x[slot] = enemyX;
+        y[slot] = enemyY;
+        this.energy[slot] = energy;
+        double previousDistance = this.distance[slot];
+        this.distance[slot] = distance;
+        this.absBearing[slot] = absBearing;
+        this.heading[slot] = heading;
+        this.velocity[slot] = velocity;
+        velocities[slot].push(velocity);
+        headings[slot].push(heading);
+
+        if (slot == closest) {
+            // the closest enemy moved away: another one may be closer now
+            if (distance > previousDistance) closest = findClosest();
+        } else if (alive[slot] && (closest < 0 || distance < this.distance[closest])) {
+            closest = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * @return The slot of the enemy, -1 if it has not been scanned
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return (slot == null) ? -1 : slot;
+    }
+
+    public void markDead(String name) {
+        int slot = slotOf(name);
+        if (slot >= 0 && alive[slot]) {
+            alive[slot] = false;
+            numAlive--;
+            if (slot == closest) closest = findClosest();
+        }
+    }
+
+    /**
+     * Constant time: the closest enemy is tracked as the scans come in. Each enemy counts with the distance of
+     * its last scan, so use absBearingFrom and distanceFrom to aim at it from where we are now.
+     * @return The slot of the living enemy with the shortest scanned distance, -1 if none is known
+     */
+    public int closest() {
+        return closest;
+    }
+
+    private int findClosest() {
+        int closest = -1;
+        for (int i = 0; i < size; i++) {
+            if (alive[i] && (closest < 0 || distance[i] < distance[closest])) closest = i;
+        }
+        return closest;
+    }
+
+    /**
+     * @return The absolute bearing from (x, y) to the last scanned location of the enemy
+     */
+    public double absBearingFrom(int slot, double x, double y) {
+        return Math.atan2(this.x[slot] - x, this.y[slot] - y);
+    }
+
+    /**
+     * @return The distance from (x, y) to the last scanned location of the enemy
+     */
+    public double distanceFrom(int slot, double x, double y) {
+        return Math.hypot(this.x[slot] - x, this.y[slot] - y);
+    }
+
+    /**
+     * @return The number of enemies there is room for
+     */
+    public int getCapacity() {
+        return names.length;
+    }
+
+    /**
+     * @return The number of enemies scanned so far
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getNumAlive() {
+        return numAlive;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public boolean isAlive(int slot) {
+        return alive[slot];
+    }
+
+    public long getLastScanTime(int slot) {
+        return lastScanTime[slot];
+    }
+
+    public double getX(int slot) {
+        return x[slot];
+    }
+
+    public double getY(int slot) {
+        return y[slot];
+    }
+
+    public double getPreviousX(int slot) {
+        return previousX[slot];
+    }
+
+    public double getPreviousY(int slot) {
+        return previousY[slot];
+    }
+
+    public double getEnergy(int slot) {
+        return energy[slot];
+    }
+
+    /**
+     * @return The energy the enemy lost between its last two scans
+     */
+    public double getEnergyDrop(int slot) {
+        return previousEnergy[slot] - energy[slot];
+    }
+
+    public double getDistance(int slot) {
+        return distance[slot];
+    }
+
+    public double getAbsBearing(int slot) {
+        return absBearing[slot];
+    }
+
+    public double getHeading(int slot) {
+        return heading[slot];
+    }
+
+    public double getVelocity(int slot) {
+        return velocity[slot];
+    }
+
+    public DoubleRingBuffer velocities(int slot) {
+        return velocities[slot];
+    }
+
+    public DoubleRingBuffer headings(int slot) {
+        return headings[slot];
+    }
+
+    /**
+     * @return Our orbit direction around the enemy (1 or -1), per scan
+     */
+    public IntRingBuffer lateralDirections(int slot) {
+        return lateralDirections[slot];
+    }
+
+    /**
+     * @return The absolute bearing from the enemy to us, per scan
+     */
+    public DoubleRingBuffer bearingsFromEnemy(int slot) {
+        return bearingsFromEnemy[slot];
+    }
+
+    /**
+     * @return Our velocity perpendicular to the enemy, per scan
+     */
+    public DoubleRingBuffer lateralVelocities(int slot) {
+        return lateralVelocities[slot];
+    }
+
+    /**
+     * @return The SurfStats segment of our situation relative to the enemy, per scan
+     */
+    public IntRingBuffer surfSegments(int slot) {
+        return surfSegments[slot];
+    }
+}
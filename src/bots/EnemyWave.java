@@ -0,0 +1,21 @@
+package bots;
+
+import java.awt.geom.Point2D;
+
+/**
+ * A bullet fired by the enemy, tracked as a circle growing from the fire location.
+ */
+public class EnemyWave {
+    public Point2D.Double fireLocation;
+    public long fireTime;
+    public double bulletVelocity, directAngle, distanceTraveled;
+    public int direction;
+    /** The EnemyRegistry slot of the robot that fired it */
+    public int source;
+    /** The SurfStats segment of the situation when the wave was fired */
+    public int segment;
+    /** Distance from the fire location to us, updated every tick by EnemyWaveStore */
+    public double distanceToMe;
+
+    public EnemyWave() { }
+}
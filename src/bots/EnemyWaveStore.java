@@ -0,0 +1,179 @@
+package bots;
+
+import java.awt.geom.Point2D;
+
+/**
+ * The enemy waves in flight. Waves are pooled: add hands out a recycled EnemyWave (with its own fireLocation) and
+ * remove swaps the last wave into the freed slot, so the store allocates nothing once it has grown to the most
+ * waves in flight at a time. The order of the waves is not kept.
+ *
+ * Usage:
+ *      EnemyWave ew = waves.add();
+ *      ew.fireLocation.setLocation(...); ...
+ *
+ *      waves.update(time, x, y);
+ *      for (int i = waves.size() - 1; i >= 0; i--) if (...) waves.remove(i);
+ *
+ * A removed wave stays valid until the next add. Not thread safe: only the robot's thread may use it.
+ */
+public class EnemyWaveStore {
+
+    /** A bullet matches a wave only if its velocity is this close to the wave's */
+    public static final double VELOCITY_TOLERANCE = 0.001;
+    /** and its distance from the fire location is this close to the distance the wave has traveled */
+    public static final double DISTANCE_TOLERANCE = 50;
+
+    private EnemyWave[] waves;
+    private int size = 0;
+    // closestSurfable is computed once per change of the waves
+    private EnemyWave closestSurfable;
+    private boolean closestSurfableValid = false;
+
+    public EnemyWaveStore() {
+        this(16);
+    }
+
+    /**
+     * @param capacity The number of waves to allocate room for; the store grows past it if needed
+     */
+    public EnemyWaveStore(int capacity) {
+        waves = new EnemyWave[Math.max(1, capacity)];
+    }
+
+    /**
+     * @return A wave to fill in, now part of the store
+     */
+    public EnemyWave add() {
+        if (size == waves.length) {
+            EnemyWave[] grown = new EnemyWave[2 * waves.length];
+            System.arraycopy(waves, 0, grown, 0, size);
+            waves = grown;
+        }
+        EnemyWave ew = waves[size];
+        if (ew == null) {
+            ew = new EnemyWave();
+            ew.fireLocation = new Point2D.Double();
+            waves[size] = ew;
+        }
+        size++;
+        closestSurfableValid = false;
+        return ew;
+    }
+
+    public EnemyWave get(int i) {
+        if (i >= size) throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+        return waves[i];
+    }
+
+    /**
+     * Remove a wave in O(1) by moving the last wave into its slot
+     * @return The removed wave
+     */
+    public EnemyWave remove(int i) {
+        EnemyWave removed = get(i);
+        size--;
+        waves[i] = waves[size];
+        waves[size] = removed;  // kept for reuse
+        closestSurfableValid = false;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        closestSurfableValid = false;
+    }
+
+    /**
+     * Advance the waves to the given time and measure their distance to us
+     * @param time The current time
+     * @param x Our x
+     * @param y Our y
+     */
+    public void update(long time, double x, double y) {
+        for (int i = 0; i < size; i++) {
+            EnemyWave ew = waves[i];
+            ew.distanceTraveled = (time - ew.fireTime) * ew.bulletVelocity;
+            ew.distanceToMe = Point2D.distance(ew.fireLocation.x, ew.fireLocation.y, x, y);
+        }
+        closestSurfableValid = false;
+    }
+
+    /**
+     * Find the wave of a bullet that hit us: the robot that fired it and the bullet velocity select the candidate
+     * waves, and the one that has traveled closest to our distance from its fire location is the match.
+     * Uses the distances of the last update.
+     * @param source The EnemyRegistry slot of the robot that fired the bullet
+     * @param bulletVelocity The velocity of the bullet
+     * @return The index of the wave, or -1 if no wave matches
+     */
+    public int findHit(int source, double bulletVelocity) {
+        int match = -1;
+        double bestError = DISTANCE_TOLERANCE;
+        for (int i = 0; i < size; i++) {
+            EnemyWave ew = waves[i];
+            if (ew.source != source || Math.abs(ew.bulletVelocity - bulletVelocity) >= VELOCITY_TOLERANCE) continue;
+            double error = Math.abs(ew.distanceToMe - ew.distanceTraveled);
+            if (error < bestError) {
+                match = i;
+                bestError = error;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Find the wave of an enemy bullet anywhere on the field, e.g. one our bullet hit. The robot that fired it and
+     * the bullet velocity select the candidate waves; among those, the bullet belongs to the one whose fire time puts
+     * it where the bullet is, that is whose traveled distance best matches the distance of the bullet from its fire
+     * location.
+     * @param source The EnemyRegistry slot of the robot that fired the bullet
+     * @param bulletVelocity The velocity of the bullet
+     * @param x The x of the bullet
+     * @param y The y of the bullet
+     * @return The index of the wave, or -1 if no wave matches
+     */
+    public int find(int source, double bulletVelocity, double x, double y) {
+        int match = -1;
+        double bestError = DISTANCE_TOLERANCE;
+        for (int i = 0; i < size; i++) {
+            EnemyWave ew = waves[i];
+            if (ew.source != source || Math.abs(ew.bulletVelocity - bulletVelocity) >= VELOCITY_TOLERANCE) continue;
+            double error = Math.abs(Point2D.distance(ew.fireLocation.x, ew.fireLocation.y, x, y) - ew.distanceTraveled);
+            if (error < bestError) {
+                match = i;
+                bestError = error;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * @return The wave that will reach us first and is still more than a tick away, or null if there is none;
+     * uses the distances of the last update, and is remembered until the waves change
+     */
+    public EnemyWave closestSurfable() {
+        if (closestSurfableValid) return closestSurfable;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        EnemyWave surfWave = null;
+        for (int i = 0; i < size; i++) {
+            EnemyWave ew = waves[i];
+            double distance = ew.distanceToMe - ew.distanceTraveled;
+            // only surf if the bullet is not too close
+            if (distance > ew.bulletVelocity && distance < closestDistance) {
+                surfWave = ew;
+                closestDistance = distance;
+            }
+        }
+        closestSurfable = surfWave;
+        closestSurfableValid = true;
+        return surfWave;
+    }
+}
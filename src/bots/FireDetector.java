@@ -0,0 +1,201 @@
+package bots;
+
+import profiling.WaveEvent;
+import robocode.Rules;
+import util.DoubleRingBuffer;
+import util.IntRingBuffer;
+
+/**
+ * Detects enemy shots from the enemies' energy drops, turns them into waves and reports what became of each wave.
+ *
+ * An enemy's energy also changes for reasons other than firing; the robot reports those through the event callbacks
+ * and they are taken off the next energy drop of that enemy:
+ *      our bullet hits it (onBulletHit)                loses the bullet damage
+ *      its bullet hits us (onHitByBullet)              gains 3 x the bullet power
+ *      we collide (onHitRobot)                         loses Rules.ROBOT_HIT_DAMAGE
+ *      it hits a wall (inferred in onScan)             loses the wall damage of its previous velocity
+ * A drop between 0.1 and 3 that is left over is a shot, fired the tick before the scan from the previous location.
+ * The wave is built from our movement and situation when the enemy aimed, two scans back, and that includes its
+ * SurfStats segment: the hits it logs and the dangers it is surfed with all come from the same fire-time segment.
+ *
+ * The waves come from the EnemyWaveStore pool. A wave that hits us or is shot down is returned by onHitByBullet or
+ * onBulletHitBullet; a wave that passes us is counted, and the robot collects the count with drainDodged,
+ * e.g. to reward its learner.
+ *
+ * Usage:
+ *      int enemy = enemies.update(...);
+ *      EnemyWave wave = detector.onScan(enemy, time, x, y, velocity, heading);  // null if the enemy did not fire
+ *      detector.update(time, x, y);
+ *      for (int i = detector.drainDodged(); i > 0; i--) ... reward the dodge ...
+ *
+ * Not thread safe: only the robot's thread may use it.
+ */
+public class FireDetector {
+
+    public static final double MIN_POWER = 0.09;
+    public static final double MAX_POWER = 3.01;
+    /** A wave has passed us when it is this far beyond us */
+    public static final double PASSED_DISTANCE = 50;
+    // an enemy that stopped within this distance of where a wall stops it has hit the wall
+    private static final double WALL_MARGIN = 1;
+    private static final double HALF_ROBOT = 18;
+
+    private final EnemyRegistry enemies;
+    private final EnemyWaveStore waves;
+    private final double fieldWidth, fieldHeight;
+    // the energy each enemy lost (negative: gained) since its last scan for reasons other than firing
+    private final double[] adjustments;
+
+    // the waves that passed us since the last drainDodged
+    private int dodged = 0;
+
+    /**
+     * @param enemies The enemies, updated by the robot before each onScan
+     * @param waves Where the detected waves go
+     */
+    public FireDetector(EnemyRegistry enemies, EnemyWaveStore waves, double fieldWidth, double fieldHeight) {
+        this.enemies = enemies;
+        this.waves = waves;
+        this.fieldWidth = fieldWidth;
+        this.fieldHeight = fieldHeight;
+        this.adjustments = new double[enemies.getCapacity()];
+    }
+
+    public EnemyWaveStore getWaves() {
+        return waves;
+    }
+
+    /**
+     * Record our movement relative to a scanned enemy and check whether it fired
+     * @param enemy The slot of the enemy, just updated in the registry
+     * @param time The current time
+     * @param myX Our x
+     * @param myY Our y
+     * @param myVelocity Our velocity
+     * @param myHeading Our heading in radians
+     * @return The new wave if the enemy fired, otherwise null
+     */
+    public EnemyWave onScan(int enemy, long time, double myX, double myY, double myVelocity, double myHeading) {
+        double absBearing = enemies.getAbsBearing(enemy);
+        double lateralVelocity = myVelocity * Math.sin(absBearing - myHeading);
+        IntRingBuffer directions = enemies.lateralDirections(enemy);
+        DoubleRingBuffer bearings = enemies.bearingsFromEnemy(enemy);
+        directions.push((lateralVelocity >= 0) ? 1 : -1);
+        bearings.push(absBearing + Math.PI);
+        enemies.lateralVelocities(enemy).push(lateralVelocity);
+        IntRingBuffer segments = enemies.surfSegments(enemy);
+        segments.push(SurfStats.segment(enemies.getDistance(enemy), lateralVelocity, wallDistance(myX, myY)));
+
+        if (hitWall(enemy)) adjustments[enemy] += Rules.getWallHitDamage(enemies.velocities(enemy).get(1));
+        double bulletPower = enemies.getEnergyDrop(enemy) - adjustments[enemy];
+        adjustments[enemy] = 0;
+        if (bulletPower <= MIN_POWER || bulletPower >= MAX_POWER || directions.size() <= 2) return null;
+
+        EnemyWave ew = waves.add();
+        ew.fireTime = time - 1;
+        ew.bulletVelocity = Rules.getBulletSpeed(bulletPower);
+        ew.distanceTraveled = ew.bulletVelocity;
+        // our direction, bearing and segment when the enemy aimed, two ticks ago
+        ew.direction = directions.get(2);
+        ew.directAngle = bearings.get(2);
+        ew.segment = segments.get(2);
+        ew.fireLocation.setLocation(enemies.getPreviousX(enemy), enemies.getPreviousY(enemy));
+        ew.source = enemy;
+        ew.distanceToMe = ew.fireLocation.distance(myX, myY);
+        WaveEvent.emit(WaveEvent.CREATED, ew.fireTime, ew.bulletVelocity, waves.size());
+        return ew;
+    }
+
+    private double wallDistance(double x, double y) {
+        return Math.min(Math.min(x, fieldWidth - x), Math.min(y, fieldHeight - y));
+    }
+
+    // stopped from a speed that damages it, against a wall
+    private boolean hitWall(int enemy) {
+        DoubleRingBuffer velocities = enemies.velocities(enemy);
+        if (velocities.size() < 2 || enemies.getVelocity(enemy) != 0 || Rules.getWallHitDamage(velocities.get(1)) == 0)
+            return false;
+        double x = enemies.getX(enemy), y = enemies.getY(enemy);
+        double margin = HALF_ROBOT + WALL_MARGIN;
+        return x <= margin || y <= margin || x >= fieldWidth - margin || y >= fieldHeight - margin;
+    }
+
+    /**
+     * Advance the waves and retire the ones that have passed us
+     */
+    public void update(long time, double myX, double myY) {
+        waves.update(time, myX, myY);
+        // backwards, so the wave swapped in by a removal has been checked already
+        for (int i = waves.size() - 1; i >= 0; i--) {
+            EnemyWave ew = waves.get(i);
+            if (ew.distanceTraveled > ew.distanceToMe + PASSED_DISTANCE) {
+                waves.remove(i);
+                WaveEvent.emit(WaveEvent.PASSED, ew.fireTime, ew.bulletVelocity, waves.size());
+                dodged++;
+            }
+        }
+    }
+
+    /**
+     * Our bullet hit an enemy
+     * @param name The enemy
+     * @param power The power of our bullet
+     */
+    public void onBulletHit(String name, double power) {
+        int enemy = enemies.slotOf(name);
+        if (enemy >= 0) adjustments[enemy] += Rules.getBulletDamage(power);
+    }
+
+    /**
+     * An enemy bullet hit us
+     * @param name The enemy that fired it
+     * @param power The power of the bullet
+     * @return The wave of the bullet, now removed (valid until the next wave is added), or null if none matches
+     */
+    public EnemyWave onHitByBullet(String name, double power) {
+        int enemy = enemies.slotOf(name);
+        if (enemy < 0) return null;     // never scanned, so it has no waves
+        adjustments[enemy] -= Rules.getBulletHitBonus(power);
+
+        int hit = waves.findHit(enemy, Rules.getBulletSpeed(power));
+        if (hit < 0) return null;
+        EnemyWave hitWave = waves.remove(hit);
+        WaveEvent.emit(WaveEvent.HIT, hitWave.fireTime, hitWave.bulletVelocity, waves.size());
+        return hitWave;
+    }
+
+    /**
+     * Our bullet hit an enemy bullet
+     * @param name The enemy that fired it
+     * @param power The power of the enemy bullet
+     * @param x The x of the enemy bullet
+     * @param y The y of the enemy bullet
+     * @return The wave of the enemy bullet, now removed (valid until the next wave is added), or null if none matches
+     */
+    public EnemyWave onBulletHitBullet(String name, double power, double x, double y) {
+        int enemy = enemies.slotOf(name);
+        if (enemy < 0) return null;
+        int hit = waves.find(enemy, Rules.getBulletSpeed(power), x, y);
+        if (hit < 0) return null;
+        EnemyWave hitWave = waves.remove(hit);
+        WaveEvent.emit(WaveEvent.BULLET_HIT, hitWave.fireTime, hitWave.bulletVelocity, waves.size());
+        return hitWave;
+    }
+
+    /**
+     * We collided with an enemy
+     */
+    public void onHitRobot(String name) {
+        int enemy = enemies.slotOf(name);
+        if (enemy >= 0) adjustments[enemy] += Rules.ROBOT_HIT_DAMAGE;
+    }
+
+    /**
+     * @return The number of waves that passed us since the last call
+     */
+    public int drainDodged() {
+        int count = dodged;
+        dodged = 0;
+        return count;
+    }
+}
@@ -0,0 +1,93 @@
+package bots;
+
+import robocode.util.Utils;
+
+import static bots.WaveSurfing.*;
+
+/**
+ * Precise prediction of our movement while surfing a wave, in both orbit directions at once.
+ * Does the same simulation as WaveSurfing.predictPosition, but into primitive state and two reusable
+ * Coordinates, so a prediction allocates nothing.
+ *
+ * Usage:
+ *      predictor.predict(x, y, velocity, heading, wave);
+ *      danger(predictor.clockwise) ... danger(predictor.counterClockwise)
+ *
+ * The results are overwritten by the next call. Not thread safe: only the robot's thread may use it.
+ */
+public class MovementPredictor {
+
+    public static final int MAX_TICKS = 500;
+
+    /** Where the wave intercepts us when we orbit its fire location clockwise (direction 1) */
+    public final Coordinate clockwise = new Coordinate();
+    /** Where the wave intercepts us when we orbit its fire location counter-clockwise (direction -1) */
+    public final Coordinate counterClockwise = new Coordinate();
+    /** The number of ticks until the wave intercepts us, per direction */
+    public int clockwiseTicks, counterClockwiseTicks;
+
+    /**
+     * Simulate both orbit directions until the wave reaches us
+     * @param x Our current x
+     * @param y Our current y
+     * @param velocity Our current velocity
+     * @param heading Our current heading in radians
+     * @param surfWave The wave we are surfing
+     */
+    public void predict(double x, double y, double velocity, double heading, EnemyWave surfWave) {
+        clockwiseTicks = simulate(x, y, velocity, heading, surfWave, 1, clockwise);
+        counterClockwiseTicks = simulate(x, y, velocity, heading, surfWave, -1, counterClockwise);
+    }
+
+    /**
+     * Simulate one orbit direction until the wave reaches us
+     * @param direction 1 to orbit clockwise, -1 counter-clockwise
+     * @param result Set to where the wave intercepts us
+     * @return The number of simulated ticks
+     */
+    public static int simulate(double x, double y, double velocity, double heading, EnemyWave surfWave,
+                               int direction, Coordinate result) {
+        double fireX = surfWave.fireLocation.x;
+        double fireY = surfWave.fireLocation.y;
+        double maxTurning, moveAngle, moveDir, dx, dy, waveRadius;
+
+        int counter = 0; // number of ticks in the future
+        boolean intercepted = false;
+
+        do {
+            moveAngle = wallSmoothing(x, y, atan2(x - fireX, y - fireY) + (direction * (Math.PI/2)), direction)
+                    - heading;
+            moveDir = 1;
+
+            if (cos(moveAngle) < 0) {
+                moveAngle += Math.PI;
+                moveDir = -1;
+            }
+
+            moveAngle = Utils.normalRelativeAngle(moveAngle);
+
+            // you can't turn more than this in one tick
+            maxTurning = Math.PI/720d*(40d - 3d*Math.abs(velocity));
+            heading = Utils.normalRelativeAngle(heading + limit(-maxTurning, moveAngle, maxTurning));
+
+            // brake when moving against moveDir, accelerate otherwise
+            velocity += (velocity * moveDir < 0 ? 2*moveDir : moveDir);
+            velocity = limit(-8, velocity, 8);
+
+            x += sin(heading) * velocity;
+            y += cos(heading) * velocity;
+
+            counter++;
+
+            dx = x - fireX;
+            dy = y - fireY;
+            waveRadius = surfWave.distanceTraveled + (counter * surfWave.bulletVelocity) + surfWave.bulletVelocity;
+            if (dx * dx + dy * dy < waveRadius * waveRadius) {
+                intercepted = true;
+            }
+        } while (!intercepted && counter < MAX_TICKS);
+
+        result.set(x, y);
+        return counter;
+    }
+}
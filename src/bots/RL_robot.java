@@ -1,11 +1,24 @@
 package bots;
 
+import learning.NStepBuffer;
+import lookupTable.EligibilityTraces;
 import lookupTable.LUT;
+import policy.GreedyPolicy;
+import profiling.CheckpointEvent;
+import profiling.DecisionEvent;
+import profiling.InputRecorder;
+import profiling.TDUpdateEvent;
+import profiling.TickProfiler;
+import stats.Counter;
+import stats.CsvStatsSink;
+import stats.Gauge;
+import stats.Mean;
+import stats.StatsRegistry;
+import util.FastMath;
 import robocode.*;
 
 import java.awt.Color;
 import java.io.*;
-import java.text.DecimalFormat;
 import java.util.*;
 
 import static robocode.util.Utils.normalRelativeAngle;
@@ -53,50 +66,87 @@ public class RL_robot extends AdvancedRobot {
     // previous and current Q value
     private static double currentQ = 0.0;
 
+    // Policy only: decide with the greedy policy compiled at the end of a learning battle (one table read per decision)
+    private static final boolean policyOnly = false;
+    private static final String policyFile = "policy.bin";
+    private static GreedyPolicy policy;
+
     // Control exploring and learning
-    private static final boolean learning = true;
+    private static final boolean learning = !policyOnly;
     private static final boolean exploring = true;
     private static final boolean onPolicy = false;
     private static final boolean terminalRewardOnly = false;
     private static final double epsilon = 0.25; // % exploration when turned on
 
+    // Watkins's Q(lambda): every back step also updates the recently visited state actions
+    private static final boolean useTraces = false;
+    private static final double LAMBDA = 0.8;
+    private static final double TRACE_THRESHOLD = 0.01;    // traces below this are pruned
+    private static final int MAX_TRACES = 256;
+    private static EligibilityTraces traces = new EligibilityTraces(MAX_TRACES, TRACE_THRESHOLD);
+    // false if the current action was picked by exploration, which cuts the traces
+    private static boolean currentGreedy = true;
+
+    // n-step returns (an alternative to the traces): >1 bootstraps from the Q value n steps later
+    private static final int N_STEP = 1;
+    private static NStepBuffer nStepBuffer = new NStepBuffer(N_STEP, NUM_STATES + 1, ALPHA, GAMMA);
+
+    // Per-turn latency of the main stages, appended to latency.txt at the end of each round.
+    // Off by default: the file grows by a summary every round and counts against the robot's data quota
+    private static final boolean profiling = false;
+    private static TickProfiler profiler = new TickProfiler(profiling);
+
+    // Record the LUT inputs to inputs.csv, to replay them in the benchmarks
+    private static final boolean recordInputs = false;
+
+    // Use the FastMath tables instead of Math for the aiming and state geometry (see FastMath for the error bounds)
+    private static final boolean fastMath = false;
+    private static InputRecorder inputRecorder = new InputRecorder();
+
     /*
     Statistics of learning
      */
     private static final int AVERAGE_SAMPLE_SIZE = 500; // number of rounds which average is calculated
     private static int sampleCount = 0;
-    private static int numWins = 0;
 
     // Total accumulated rewards
     private static double accumulatedRewards = 0.0;
-    private static double avgSumRewards = 0.0;
+    private static double roundRewards = 0.0;
 
-    private static int numBackSteps = 0;
-    private static double averageSumQ = 0.0;
-    private static double averageErrorQ = 0.0;
+    // one line of statistics.txt per AVERAGE_SAMPLE_SIZE rounds, in this order
+    private static StatsRegistry stats = new StatsRegistry();
+    private static Gauge numRounds = stats.gauge("rounds");
+    private static Counter numWins = stats.counter("wins");
+    private static Mean averageErrorQ = stats.mean("errorQ");
+    private static Mean avgSumRewards = stats.mean("rewardsPerRound");
+    private static Counter numBackSteps = stats.counter("backSteps");
 
     // event callbacks
-    private static int numWallHit = 0;
-    private static int numBulletHit = 0;
-    private static int numBulletHitBullet = 0;
-    private static int numHitByBullet = 0;
+    private static Counter numWallHit = stats.counter("wallHits");
+    private static Counter numHitByBullet = stats.counter("hitByBullets");
+    private static Counter numBulletHit = stats.counter("bulletHits");
+    private static Counter numBulletHitBullet = stats.counter("bulletHitBullets");
+    private static Gauge targetWinRateRounds = stats.gauge("roundsToTargetWinRate");
+    private static CsvStatsSink statsSink;
 
     private static double totalNNSquaredError = 0;
     private static int winForAutosaving = 100; // automatically save the weights after number of wins
 
-    /*
-    Formatting log files
-     */
-    private DecimalFormat dfR = new DecimalFormat("0.000");
+    // rounds needed to reach the target win rate over the last WIN_RATE_WINDOW rounds, to compare learners
+    private static final int WIN_RATE_WINDOW = 100;
+    private static final double TARGET_WIN_RATE = 0.9;
+    private static boolean[] recentWins = new boolean[WIN_RATE_WINDOW];
+    private static int recentWinCount = 0;
+    private static int roundsToTargetWinRate = -1;
+    private boolean wonRound = false;
 
 
     /*
     ===============================    Robot control related variables    =============================
      */
 
-    // Enemy energy which is used to detect when the enemy has fired
+    // Energy of the current enemy
     private static double currentEnemyEnergy;
-    private static double previousEnemyEnergy = 100;
 
     // Gun power used: 0.1 - 3
     private static final double gunPower = 2;
@@ -110,7 +160,6 @@ public class RL_robot extends AdvancedRobot {
     // constants for arena dimension
     private static final double arenaWidth = 800;
     private static final double arenaHeight = 600;
-    private static double sumAvgErrorQ = 0;
     private static final double lowEnergyThreshold = 40.0;
     private static final boolean loadLUT = false;
 
@@ -120,20 +169,19 @@ public class RL_robot extends AdvancedRobot {
     }
 
     private RobotActions selectedAction;
+    // values() copies the array on each call, so we keep our own
+    private static final RobotActions[] ACTIONS = RobotActions.values();
 
     // initialize current and previous state action
     private static double[] currentStateAction = new double[NUM_STATES+1];
     private static double[] previousStateAction = new double[NUM_STATES+1];
 
 
-    // Enum of the state machine of the Robot, it first scan to get a sense of the current state s',
-    // then select an action to maximize Q(s',a'), then it performs the action,
-    // wait for the reward event when it updates the previous Q(s,a) and store s <- s', go back to scan mode
-    private enum RobotMode {
-        SCAN, SELECT, PERFORM
-    }
-
-    private RobotMode mode;
+    // Each turn the robot senses in onScannedRobot; at a scan at least ACTION_REPEAT turns after the previous decision
+    // it updates the previous Q(s,a), selects the action maximizing Q(s',a') and performs it; the run loop ends the turn.
+    // In between, the action is repeated and its rewards add up for the next update.
+    private static final int ACTION_REPEAT = 1;
+    private long lastDecisionTime = -ACTION_REPEAT;
 
 
     // store the enemy tank and our own tank status
@@ -141,6 +189,13 @@ public class RL_robot extends AdvancedRobot {
     private static double currentEnemyDistance = 0.0;
     private static double currentEnemyBearingRadians = 0.0;
     private static double currentEnemyHeadingRadians = 0.0;
+    // every enemy by name; the current enemy above is the closest living one
+    private EnemyRegistry enemies;
+    private static final int ENEMY_HISTORY = 3;
+    // the enemies' shots as waves; a dodged wave is worth DODGE_REWARD if rewardDodges
+    private FireDetector fireDetector;
+    private static final boolean rewardDodges = false;
+    private static final double DODGE_REWARD = 3;
 
     private boolean closeToTopWall = false, closeToLeftWall = false, closeToRightWall = false, closeToBottomWall = false;
 
@@ -148,19 +203,31 @@ public class RL_robot extends AdvancedRobot {
     /*
     Initialize the instance of look up table
      */
+    // Robot centres stay ROBOT_HALF_SIZE away from the walls, so these are the largest quantized offsets a state can hold.
+    // run() checks the battle field, so every state is on the LUT and the policy grid (GreedyPolicy would clamp it otherwise)
+    private static final double ROBOT_HALF_SIZE = 18;
+    private static final int MAX_X_FROM_ENEMY = (int) Math.round((arenaWidth - 2 * ROBOT_HALF_SIZE) * scalingFactor);
+    private static final int MAX_Y_FROM_ENEMY = (int) Math.round((arenaHeight - 2 * ROBOT_HALF_SIZE) * scalingFactor);
+    private static final int MAX_X_FROM_CENTER = (int) Math.round((arenaWidth / 2 - ROBOT_HALF_SIZE) * scalingFactor);
+    private static final int MAX_Y_FROM_CENTER = (int) Math.round((arenaHeight / 2 - ROBOT_HALF_SIZE) * scalingFactor);
+
     private final static int[] floors = {
-            (int) (-arenaWidth * scalingFactor),
-            (int) (-arenaHeight * scalingFactor),
-            (int) (-arenaWidth * scalingFactor / 2),
-            (int) (-arenaHeight * scalingFactor / 2),
+            -MAX_X_FROM_ENEMY,      // x from enemy
+            -MAX_Y_FROM_ENEMY,      // y from enemy
+            0,                      // enemy velocity
+            -MAX_X_FROM_CENTER,     // x from center
+            -MAX_Y_FROM_CENTER,     // y from center
+            0,                      // energy level
             0   // lower bound for actions
     };
 
     private final static int[] ceilings = {
-            (int) (+arenaWidth * scalingFactor),
-            (int) (+arenaHeight * scalingFactor),
-            (int) (+arenaWidth * scalingFactor / 2),
-            (int) (+arenaHeight * scalingFactor / 2),
+            MAX_X_FROM_ENEMY,
+            MAX_Y_FROM_ENEMY,
+            1,
+            MAX_X_FROM_CENTER,
+            MAX_Y_FROM_CENTER,
+            1,
             4   // upper bound for actions
     };
 
@@ -170,6 +237,9 @@ public class RL_robot extends AdvancedRobot {
     // the Robocode main method
     @Override
     public void run() {
+        enemies = new EnemyRegistry(getOthers(), ENEMY_HISTORY);
+        fireDetector = new FireDetector(enemies, new EnemyWaveStore(), arenaWidth, arenaHeight);
+
         // check the dimension of the arena, if it is not equal to the preset constants, raise an exception
         if (getBattleFieldHeight() != arenaHeight || getBattleFieldWidth() != arenaWidth) {
             throw new IllegalArgumentException("The actual battle field dimension is: " + getBattleFieldWidth() + " x " + getBattleFieldHeight());
@@ -187,58 +257,33 @@ public class RL_robot extends AdvancedRobot {
             else setGunColor(Color.red);
         } else setGunColor(Color.BLACK);
 
-        // initialize the state machine to scan mode
-        mode = RobotMode.SCAN;
-
         // initialize the action to going up
         selectedAction = RobotActions.UP;
 
         // initialize the LUT
 //        myLUT.initialiseLUT();
-
-        // we add a custom event listen to the event when the enemy has fired a bullet
-//        Condition enemyFiredEvent = new Condition("enemyFiredEvent") {
-//            @Override
-//            public boolean test() {
-//                return enemyFired;
-////                double bulletSpeed = 20 - 3 * enemyGunpower;
-////                double bulletBearing = currentEnemyBearingRadians;
-////                return ((bulletSpeed * (getTime() - enemyRobot.getTime()) > (currentEnemyDistance+16 - getVelocity()*Math.sin(bulletBearing))) && !isHitByBullet && !removeDodgeCallback);
-//            }
-//        };
-//        addCustomEvent(enemyFiredEvent);
+        if (policyOnly && policy == null) {
+            try {
+                policy = GreedyPolicy.load(loadableDataFile(policyFile));
+            } catch (IOException e) {
+                // without a policy we fall back to the greedy choice over the LUT
+                e.printStackTrace();
+            }
+        }
 
         // Here we use Turn Multiplier Lock to ensure a lock on the enemy
 //        turnRadarRightRadians(Double.POSITIVE_INFINITY);
+        // one pass per turn: keep the radar sweeping and end the turn; onScannedRobot senses, decides and acts
         while(true) {
-            switch (mode){
-                case SCAN:
-                    // wait until all actions have been performed and then we scan
-                    if(getAllEvents().isEmpty()) {
-                        setTurnRadarRight(45);
-                        execute();
-                    }
-                    break;
-
-                case SELECT:
-                    // do a back-step
-                    if(learning) backStep(accumulatedRewards);
-
-                    // here we select the action based on state and maxQ (epsilon greedy)
-                    updateStateAction();
-                    mode = RobotMode.PERFORM;
-                    break;
-
-                case PERFORM:
-                    performAction();
-                    mode = RobotMode.SCAN;
-                    break;
-            }
+            setTurnRadarRight(45);
+            execute();
         }
     }
 
 
     private void updateStateAction() {
+        DecisionEvent event = DecisionEvent.start();
+        boolean explored = false;
         // store previous state action
         System.arraycopy(currentStateAction, 0, previousStateAction, 0, NUM_STATES + 1);
 
@@ -250,8 +295,16 @@ public class RL_robot extends AdvancedRobot {
         // check if the robot is close to the wall: if it is, set the flags accordingly
         checkCloseToWall();
 
+        if (policyOnly && policy != null) {
+            // every row of the table holds the current state
+            selectedAction = ACTIONS[policy.actionFor(stateActionTable[0])];
+            System.arraycopy(stateActionTable[selectedAction.ordinal()], 0, currentStateAction, 0, NUM_STATES + 1);
+            event.record(currentStateAction, selectedAction.name(), Double.NaN, false);
+            return;
+        }
+
         // Get Q value for all (state, action) pairs for current state
-        for (RobotActions action : RobotActions.values()) {
+        for (RobotActions action : ACTIONS) {
             // Use the LUT to find the Q values
             // select the action with max Q
             switch (action) {
@@ -304,19 +357,25 @@ public class RL_robot extends AdvancedRobot {
                 int i = rand.nextInt(NUM_ACTIONS);  //generates a random number between 0 and NUM_ACTIONS-1
                 if(onPolicy) currentQ = myLUT.outputFor(stateActionTable[i]);
                 else currentQ = maxQ;
+                currentGreedy = (ACTIONS[i] == selectedAction);
                 System.arraycopy(stateActionTable[i], 0, currentStateAction, 0, NUM_STATES + 1);
-                selectedAction = RobotActions.values()[i];
+                selectedAction = ACTIONS[i];
+                explored = true;
             } else{
+                currentGreedy = true;
                 currentQ = maxQ;
                 System.arraycopy(stateActionTable[selectedAction.ordinal()], 0, currentStateAction, 0, NUM_STATES + 1);
             }
         } else { // go with the best Q
+            currentGreedy = true;
             currentQ = maxQ;
             System.arraycopy(stateActionTable[selectedAction.ordinal()], 0, currentStateAction, 0, NUM_STATES + 1);
         }
 
         // add up the total Q
 //        averageSumQ += currentQ;
+        event.record(currentStateAction, selectedAction.name(), maxQ, explored);
+        if (recordInputs) inputRecorder.add(InputRecorder.LUT, currentStateAction);
     }
 
     private void performAction() {
@@ -365,7 +424,6 @@ public class RL_robot extends AdvancedRobot {
                 break;
 
         }
-        execute();
     }
 
     private void aimFire() {
@@ -379,6 +437,18 @@ public class RL_robot extends AdvancedRobot {
         return Math.min(max, Math.max(min, value));
     }
 
+    private static double sin(double a) {
+        return fastMath ? FastMath.sin(a) : Math.sin(a);
+    }
+
+    private static double cos(double a) {
+        return fastMath ? FastMath.cos(a) : Math.cos(a);
+    }
+
+    private static double atan2(double y, double x) {
+        return fastMath ? FastMath.atan2(y, x) : Math.atan2(y, x);
+    }
+
     // we do predictive fire
     private void predictiveFire() {
         final double FIREPOWER = gunPower;
@@ -387,15 +457,15 @@ public class RL_robot extends AdvancedRobot {
         final double eAbsBearing = getHeadingRadians() + currentEnemyBearingRadians;
         final double rX = getX(), rY = getY(),
                 bV = Rules.getBulletSpeed(FIREPOWER);
-        final double eX = rX + currentEnemyDistance * Math.sin(eAbsBearing),
-                eY = rY + currentEnemyDistance * Math.cos(eAbsBearing),
+        final double eX = rX + currentEnemyDistance * sin(eAbsBearing),
+                eY = rY + currentEnemyDistance * cos(eAbsBearing),
                 eV = currentEnemyVelocity,
                 eHd = currentEnemyHeadingRadians;
         // These constants make calculating the quadratic coefficients below easier
         final double A = (eX - rX) / bV;
-        final double B = eV / bV * Math.sin(eHd);
+        final double B = eV / bV * sin(eHd);
         final double C = (eY - rY) / bV;
-        final double D = eV / bV * Math.cos(eHd);
+        final double D = eV / bV * cos(eHd);
         // Quadratic coefficients: a*(1/t)^2 + b*(1/t) + c = 0
         final double a = A * A + C * C;
         final double b = 2 * (A * B + C * D);
@@ -408,13 +478,13 @@ public class RL_robot extends AdvancedRobot {
             final double t = Math.min(t1, t2) >= 0 ? Math.min(t1, t2) : Math.max(t1, t2);
             // Assume enemy stops at walls
             final double endX = limit(
-                    eX + eV * t * Math.sin(eHd),
+                    eX + eV * t * sin(eHd),
                     ROBOT_WIDTH / 2, getBattleFieldWidth() - ROBOT_WIDTH / 2);
             final double endY = limit(
-                    eY + eV * t * Math.cos(eHd),
+                    eY + eV * t * cos(eHd),
                     ROBOT_HEIGHT / 2, getBattleFieldHeight() - ROBOT_HEIGHT / 2);
             setTurnGunRightRadians(robocode.util.Utils.normalRelativeAngle(
-                    Math.atan2(endX - rX, endY - rY)
+                    atan2(endX - rX, endY - rY)
                             - getGunHeadingRadians()));
             setFire(FIREPOWER);
         }
@@ -422,15 +492,15 @@ public class RL_robot extends AdvancedRobot {
 
     private void updateStateActionTable() {
         // quantization
-        double xFromEnemy = (double) Math.round(Math.sin(currentEnemyBearingRadians + getHeadingRadians()) * currentEnemyDistance * scalingFactor);
-        double yFromEnemy = (double) Math.round(Math.cos(currentEnemyBearingRadians + getHeadingRadians()) * currentEnemyDistance * scalingFactor);
+        double xFromEnemy = (double) Math.round(sin(currentEnemyBearingRadians + getHeadingRadians()) * currentEnemyDistance * scalingFactor);
+        double yFromEnemy = (double) Math.round(cos(currentEnemyBearingRadians + getHeadingRadians()) * currentEnemyDistance * scalingFactor);
         double enemyVelocity = (currentEnemyVelocity > 1) ? 1 : 0;
         double xFromCenterQuantized = (double) Math.round((getX() - arenaWidth / 2.0) * scalingFactor);
         double yFromCenterQuantized = (double) Math.round((getY() - arenaHeight / 2.0) * scalingFactor);
         double energyLevel = (lowEnergyThreshold < getEnergy()) ? 1 : 0;
 
         // update the state action table
-        for (RobotActions i : RobotActions.values()) {
+        for (RobotActions i : ACTIONS) {
             stateActionTable[i.ordinal()][0] = xFromEnemy;
             stateActionTable[i.ordinal()][1] = yFromEnemy;
             stateActionTable[i.ordinal()][2] = enemyVelocity;
@@ -473,12 +543,20 @@ public class RL_robot extends AdvancedRobot {
         }
     }
 
-    private void updateAllStats(ScannedRobotEvent enemyRobot) {
-        currentEnemyDistance = enemyRobot.getDistance();
-        currentEnemyBearingRadians = enemyRobot.getBearingRadians();
-        currentEnemyHeadingRadians = enemyRobot.getHeadingRadians();
-        currentEnemyVelocity = enemyRobot.getVelocity();
-        currentEnemyEnergy = enemyRobot.getEnergy();
+    // returns the slot of the scanned enemy
+    private int updateAllStats(ScannedRobotEvent enemyRobot) {
+        int enemy = enemies.update(enemyRobot.getName(), getTime(), getHeadingRadians() + enemyRobot.getBearingRadians(),
+                enemyRobot.getDistance(), enemyRobot.getHeadingRadians(), enemyRobot.getVelocity(),
+                enemyRobot.getEnergy(), getX(), getY());
+
+        // in a melee, the states and the aim follow the closest enemy, seen from where we are now
+        int target = enemies.closest();
+        currentEnemyDistance = enemies.distanceFrom(target, getX(), getY());
+        currentEnemyBearingRadians = normalRelativeAngle(enemies.absBearingFrom(target, getX(), getY()) - getHeadingRadians());
+        currentEnemyHeadingRadians = enemies.getHeading(target);
+        currentEnemyVelocity = enemies.getVelocity(target);
+        currentEnemyEnergy = enemies.getEnergy(target);
+        return enemy;
     }
 
     /*
@@ -495,65 +573,58 @@ public class RL_robot extends AdvancedRobot {
 //        else radarTurn += extraTurn;
 //        setTurnRadarRightRadians(radarTurn);
 
+        long start = profiler.start();
         // update the stats of enemy robot and our robot
-        updateAllStats(enemyRobot);
-
-        // Check if the enemy has fired
-//        if (_bullets.isEmpty()) {
-//            enemyFired = false;     // reset enemy fired
-//        }
-//        // enemy energy drop
-//        double deltaEnemyEnergy = previousEnemyEnergy - currentEnemyEnergy;
-//        // we offset this energy drop when our bullet hits the enemy or we are hit by enemy bullet or the enemy runs into wall (ignored)
-//        if (isHitByBullet) {
-//            deltaEnemyEnergy += hitBulletPower;
-//            isHitByBullet = false;
-//        }
-//        if (isBulletHit) {
-////            deltaEnemyEnergy -= (double)Math.round(Rules.getBulletDamage(gunPower));
-//            deltaEnemyEnergy -= 10.0;
-//            isBulletHit = false;
-//        }
-////        final double enemyGunpower = deltaEnemyEnergy;
-//
-//        if (deltaEnemyEnergy > 0.9 && deltaEnemyEnergy < 3.01) { // when the enemy has fired a bullet
-//            // set the flag, trigger enemy fired event
-//            enemyFired = true;
-//            Point2D.Double bulletPosition = new Point2D.Double();
-//            bulletPosition.setLocation(currentEnemyPositionX, currentEnemyPositionY);
-//            Bullet bullet = new Bullet(enemyRobot.getTime(), currentEnemyBearingRadians + getHeadingRadians(), deltaEnemyEnergy, bulletPosition, currentEnemyDistance);
-//            _bullets.add(bullet);
-//
-//            mode = RobotMode.SCAN;
-//            isHitByBullet = false;
-//        }
-//
-//        previousEnemyEnergy = currentEnemyEnergy;
-        // We only update the current states when we are in scanning mode
-        if (mode == RobotMode.SCAN) {
+        int enemy = updateAllStats(enemyRobot);
+
+        // Check if the enemy has fired, and retire the waves that have passed us
+        fireDetector.onScan(enemy, getTime(), getX(), getY(), getVelocity(), getHeadingRadians());
+        fireDetector.update(getTime(), getX(), getY());
+        // hits are rewarded by their events
+        int dodged = fireDetector.drainDodged();
+        if (rewardDodges && !terminalRewardOnly) accumulatedRewards += dodged * DODGE_REWARD;
+
+        // We only update the current states when it is time to decide
+        boolean decide = getTime() - lastDecisionTime >= ACTION_REPEAT;
+        if (decide) {
             // update the current state action table
             updateStateActionTable();
+        }
+        profiler.stop(TickProfiler.Stage.SCAN, start);
 
-            // change the mode to SELECT action
-            mode = RobotMode.SELECT;
+        if (decide) {
+            decide();
+            lastDecisionTime = getTime();
         }
     }
 
+    // back step, select the next action and set it up; it is executed at the end of the turn by the run loop
+    private void decide() {
+        // do a back-step
+        long start = profiler.start();
+        if(learning) backStep(accumulatedRewards);
+        profiler.stop(TickProfiler.Stage.BACK_STEP, start);
+
+        // here we select the action based on state and maxQ (epsilon greedy)
+        start = profiler.start();
+        updateStateAction();
+        profiler.stop(TickProfiler.Stage.UPDATE_STATE_ACTION, start);
+
+        performAction();
+    }
+
     /*
     when we hit by a bullet, assign a negative reward and do a back step
      */
     @Override
     public void onHitByBullet(HitByBulletEvent event) {
         double bulletPower = event.getPower();
-//        hitBulletPower = Rules.getBulletHitBonus(bulletPower);
+        fireDetector.onHitByBullet(event.getName(), bulletPower);
         double reward = -(Rules.getBulletDamage(bulletPower) + Rules.getBulletHitBonus(bulletPower));
         if(terminalRewardOnly) reward = 0;
 //        if(learning) backStep(reward);
         accumulatedRewards+=reward;
-        numHitByBullet++;
-
-//        // we remove the bullet from the list
-//        if (!_bullets.isEmpty()) _bullets.remove(0);
+        numHitByBullet.increment();
     }
 
     /*
@@ -566,7 +637,7 @@ public class RL_robot extends AdvancedRobot {
         accumulatedRewards += reward;
 //        if(learning) backStep(reward);
 
-        numWallHit++;
+        numWallHit.increment();
     }
 
     /*
@@ -575,6 +646,7 @@ public class RL_robot extends AdvancedRobot {
 
     @Override
     public void onHitRobot(HitRobotEvent event) {
+        fireDetector.onHitRobot(event.getName());
         double reward = -1;
         if(terminalRewardOnly) reward = 0;
         accumulatedRewards += reward;
@@ -587,14 +659,25 @@ public class RL_robot extends AdvancedRobot {
     @Override
     public void onDeath(DeathEvent event) {
         double reward = -100;
-        if(learning) {
-            double previousQ = myLUT.outputFor(currentStateAction);
-            double errorQ = ALPHA * (GAMMA * reward - previousQ);
-            myLUT.train(previousStateAction, previousQ + errorQ);
-            averageErrorQ += errorQ;
-            avgSumRewards += accumulatedRewards;
-            accumulatedRewards = 0;
+        TDUpdateEvent update = TDUpdateEvent.start();
+        if(learning && N_STEP > 1) {
+            // the last step of the round, taken by the current action: update all the buffered steps, nothing to bootstrap from
+            boolean updates = nStepBuffer.pushUpdates();
+            double errorQ = nStepBuffer.push(currentStateAction, GAMMA * reward, 0.0, myLUT);
+            if (updates) averageErrorQ.add(errorQ);
+            flushNStep(0.0);
+            update.record("LUT", reward, errorQ);
+        } else if(learning) {
+            // the action being taken when the round ended gets the terminal reward
+            double terminalQ = myLUT.outputFor(currentStateAction);
+            double errorQ = ALPHA * (GAMMA * reward - terminalQ);
+            if (useTraces) terminalTraceUpdate(errorQ);
+            else myLUT.train(currentStateAction, terminalQ + errorQ);
+            averageErrorQ.add(errorQ);
+            update.record("LUT", reward, errorQ);
         }
+        roundRewards += accumulatedRewards;
+        accumulatedRewards = 0;
     }
 
 //    @Override
@@ -602,36 +685,6 @@ public class RL_robot extends AdvancedRobot {
 //        double reward = -gunPower;
 //        accumulatedRewards += reward;
 ////        if(learning)backStep(reward);
-//    }
-
-    /*
-        when the enemy has fired a bullet
-         */
-//    @Override
-//    public void onCustomEvent(CustomEvent event) {
-//        if (debug) {
-//            System.out.println("Enemy has fired a bullet!");
-//        }
-//
-//        if(_bullets.isEmpty()) enemyFired = false;
-//
-//        // when we dodged the bullet, we remove it from the list
-//        for (int i = 0; i < _bullets.size(); i++) {
-//            Bullet bullet = (Bullet) _bullets.get(i);
-//            if (bullet.getRemainingDistanceToRobot(event.getTime()) < 0) {
-//                if (debug) {
-//                    System.out.println("Bullet Dodged!");
-//                }
-//                _bullets.remove(i);
-//
-//                double reward = 3;
-//                if(learning)backStep(reward);
-//                accumulatedRewards += reward;
-//                numBulletDodge++;
-//            }
-//        }
-//        //change the state machine to SCAN mode again
-//        mode = RobotMode.SCAN;
 //    }
 
     /*
@@ -639,20 +692,23 @@ public class RL_robot extends AdvancedRobot {
              */
     @Override
     public void onBulletHit(BulletHitEvent event) {
+        fireDetector.onBulletHit(event.getName(), event.getBullet().getPower());
         double reward = Rules.getBulletHitBonus(gunPower)+Rules.getBulletDamage(gunPower);
 //        if(learning)backStep(reward);
         if(terminalRewardOnly) reward = 0;
         accumulatedRewards += reward;
-        numBulletHit++;
+        numBulletHit.increment();
     }
 
     @Override
     public void onBulletHitBullet(BulletHitBulletEvent event) {
+        Bullet hitBullet = event.getHitBullet();
+        fireDetector.onBulletHitBullet(hitBullet.getName(), hitBullet.getPower(), hitBullet.getX(), hitBullet.getY());
         double reward = event.getHitBullet().getPower() - event.getBullet().getPower();
 //        if(learning)backStep(reward);
         if(terminalRewardOnly) reward = 0;
         accumulatedRewards += reward;
-        numBulletHitBullet++;
+        numBulletHitBullet.increment();
     }
 
     /*
@@ -660,33 +716,91 @@ public class RL_robot extends AdvancedRobot {
              */
     @Override
     public void onRobotDeath(RobotDeathEvent event) {
+        enemies.markDead(event.getName());
         double reward = 100;
-        if(learning) {
-            double previousQ = myLUT.outputFor(currentStateAction);
-            double errorQ = ALPHA * (GAMMA * reward - previousQ);
-            myLUT.train(previousStateAction, previousQ + errorQ);
-            averageErrorQ += errorQ;
+        // in a melee only the last death ends the episode
+        if (getOthers() > 0) {
+            if (!terminalRewardOnly) accumulatedRewards += reward;
+            return;
+        }
+        TDUpdateEvent update = TDUpdateEvent.start();
+        if(learning && N_STEP > 1) {
+            // the last step of the round, taken by the current action: update all the buffered steps, nothing to bootstrap from
+            boolean updates = nStepBuffer.pushUpdates();
+            double errorQ = nStepBuffer.push(currentStateAction, GAMMA * reward, 0.0, myLUT);
+            if (updates) averageErrorQ.add(errorQ);
+            flushNStep(0.0);
+            update.record("LUT", reward, errorQ);
+        } else if(learning) {
+            // the action being taken when the round ended gets the terminal reward
+            double terminalQ = myLUT.outputFor(currentStateAction);
+            double errorQ = ALPHA * (GAMMA * reward - terminalQ);
+            if (useTraces) terminalTraceUpdate(errorQ);
+            else myLUT.train(currentStateAction, terminalQ + errorQ);
+            averageErrorQ.add(errorQ);
+            update.record("LUT", reward, errorQ);
         }
-        avgSumRewards += accumulatedRewards;
+        roundRewards += accumulatedRewards;
         accumulatedRewards = 0;
     }
 
     private void backStep(double reward) {
-        numBackSteps++;
+        numBackSteps.increment();
+        TDUpdateEvent event = TDUpdateEvent.start();
+
+        if (N_STEP > 1) {
+            boolean updates = nStepBuffer.pushUpdates();
+            double errorQ = nStepBuffer.push(previousStateAction, reward, currentQ, myLUT);
+            if (updates) averageErrorQ.add(errorQ);
+            event.record("LUT", reward, errorQ);
+            roundRewards += accumulatedRewards;
+            accumulatedRewards = 0;
+            return;
+        }
 
         // update Q value
         double previousQ = myLUT.outputFor(previousStateAction);
         double errorQ = ALPHA * (reward + GAMMA * currentQ - previousQ);
-        myLUT.train(previousStateAction, previousQ + errorQ);
-
-        averageErrorQ += errorQ;
+        if (useTraces) {
+            traces.visit(myLUT.indexFor(previousStateAction));
+            traces.update(myLUT, errorQ);
+            // Watkins: the traces only survive while we follow the greedy policy
+            traces.afterAction(currentGreedy, GAMMA * LAMBDA);
+        } else myLUT.train(previousStateAction, previousQ + errorQ);
+        event.record("LUT", reward, errorQ);
+
+        averageErrorQ.add(errorQ);
         // set the current state action pair as the previous one
 //        System.arraycopy(currentStateAction, 0, previousStateAction, 0, NUM_STATES + 1);
 
-        avgSumRewards += accumulatedRewards;
+        roundRewards += accumulatedRewards;
         accumulatedRewards = 0;
     }
 
+    // update the steps still in the n-step buffer, recording the error of each update
+    private void flushNStep(double bootstrapQ) {
+        while (nStepBuffer.size() > 0) averageErrorQ.add(nStepBuffer.flushOne(bootstrapQ, myLUT));
+    }
+
+    // the last update of a round: credit the current state action and every one still traced, then drop the traces
+    private void terminalTraceUpdate(double errorQ) {
+        traces.visit(myLUT.indexFor(currentStateAction));
+        traces.update(myLUT, errorQ);
+        traces.clear();
+    }
+
+    // keep the win rate over the last WIN_RATE_WINDOW rounds, and note when it first reaches the target
+    private void updateWinRate() {
+        int slot = sampleCount % WIN_RATE_WINDOW;
+        if (recentWins[slot]) recentWinCount--;
+        recentWins[slot] = wonRound;
+        if (wonRound) recentWinCount++;
+        if (roundsToTargetWinRate < 0 && sampleCount >= WIN_RATE_WINDOW
+                && recentWinCount >= TARGET_WIN_RATE * WIN_RATE_WINDOW) {
+            roundsToTargetWinRate = sampleCount;
+        }
+    }
+
     /*
     The following classes handles battle over events and saves the LUT and statistics
      */
@@ -694,42 +808,50 @@ public class RL_robot extends AdvancedRobot {
     @Override
     public void onRoundEnded(RoundEndedEvent event) {
         sampleCount++;
+        updateWinRate();
+        traces.clear();
+        // steps still buffered if the round ended without a death (e.g. time out)
+        if (learning && N_STEP > 1) flushNStep(currentQ);
         /*
          auto-save for each 100 samples
           */
+        avgSumRewards.add(roundRewards);
+        roundRewards = 0;
+        accumulatedRewards = 0;
+
         if ((sampleCount % AVERAGE_SAMPLE_SIZE == 0) && sampleCount != 0) {
-            sumAvgErrorQ = sumAvgErrorQ/AVERAGE_SAMPLE_SIZE;
-            avgSumRewards = avgSumRewards/AVERAGE_SAMPLE_SIZE;
             try {
-                saveStats();    // save the statistics
+                saveStats();    // save the statistics and start a new window
             } catch (IOException e) {
                 e.printStackTrace();
             }
-            numWins = 0;
-            sumAvgErrorQ = 0;
-            avgSumRewards = 0;
         }
 
-        // calculate average error Q
-        averageErrorQ = averageErrorQ / numBackSteps;
-        sumAvgErrorQ += averageErrorQ;
-        averageSumQ = averageSumQ / numBackSteps;
-
-        // reset number of back step and averageErrorQ
-        numBackSteps = 0;
-        averageErrorQ = 0;
-        averageSumQ = 0;
-        accumulatedRewards = 0;
-        numBulletHitBullet = 0;
+        if (profiling) {
+            try {
+                saveLatency(event.getRound());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (recordInputs) {
+            try {
+                saveInputs();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
-        numWallHit = 0;
-        numBulletHit = 0;
-        numHitByBullet = 0;
+    @Override
+    public void onSkippedTurn(SkippedTurnEvent event) {
+        profiler.skippedTurn();
     }
 
     @Override
     public void onWin(WinEvent event) {
-        numWins++;
+        numWins.increment();
+        wonRound = true;
     }
 
     @Override
@@ -737,20 +859,73 @@ public class RL_robot extends AdvancedRobot {
         try {
             saveLUT();    // save the LUT
         } catch (IOException e) { e.printStackTrace(); }
+        if (learning) {
+            try {
+                savePolicy();
+            } catch (IOException e) { e.printStackTrace(); }
+        }
+        try {
+            if (statsSink != null) statsSink.close();
+        } catch (IOException e) { e.printStackTrace(); }
+        statsSink = null;
     }
 
     private void saveStats() throws IOException {
-        OutputStreamWriter w = new OutputStreamWriter(new RobocodeFileOutputStream(getDataFile("statistics.txt").getAbsolutePath(), true));
-        BufferedWriter writer = new BufferedWriter(w);
-        writer.write(sampleCount + ", " + numWins + ", " + dfR.format(sumAvgErrorQ) + ", " + dfR.format(avgSumRewards) + ", "
-                + numBackSteps + ", " + numWallHit + ", " + numHitByBullet + ", " + numBulletHit + ", " + numBulletHitBullet + "\n");
-        writer.flush();
+        // opened once, the header only goes into a new file
+        if (statsSink == null) {
+            File file = getDataFile("statistics.txt");
+            statsSink = new CsvStatsSink(new OutputStreamWriter(new RobocodeFileOutputStream(file.getAbsolutePath(), true)), file.length() == 0);
+        }
+        numRounds.set(sampleCount);
+        targetWinRateRounds.set(roundsToTargetWinRate);
+        statsSink.write(stats.snapshotAndReset());
+    }
+
+    // the whole round summary is built in memory, so the file is opened and written only once per round
+    private void saveLatency(int round) throws IOException {
+        String summary = profiler.roundSummary(round);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new RobocodeFileOutputStream(getDataFile("latency.txt").getAbsolutePath(), true)));
+        writer.write(summary);
+        writer.close();
+    }
+
+    private void saveInputs() throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new RobocodeFileOutputStream(getDataFile("inputs.csv").getAbsolutePath(), true)));
+        writer.write(inputRecorder.drain());
         writer.close();
     }
 
+    // compile the greedy policy of the LUT for policy-only battles
+    private void savePolicy() throws IOException {
+        GreedyPolicy greedy = GreedyPolicy.forIntegerStates(Arrays.copyOf(floors, NUM_STATES), Arrays.copyOf(ceilings, NUM_STATES), NUM_ACTIONS);
+        double[][] templates = new double[NUM_ACTIONS][];
+        for (int i = 0; i < NUM_ACTIONS; i++) templates[i] = stateActionTable[i].clone();
+        greedy.compile(myLUT, templates);
+        greedy.save(new RobocodeFileOutputStream(getDataFile(policyFile + ".tmp")));
+        replaceDataFile(policyFile);
+    }
+
+    // the robot writes a data file to a temporary copy first, then renames it over the old file,
+    // so a crash during the write never leaves half a file behind. renameTo can't replace a file everywhere,
+    // so the old file is deleted first: loadableDataFile covers a crash between the two
+    private void replaceDataFile(String fileName) throws IOException {
+        File file = getDataFile(fileName);
+        File temp = getDataFile(fileName + ".tmp");
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) throw new IOException("Can't replace " + file);
+    }
+
+    // the data file to load: if a save stopped between deleting the old file and the rename, the temporary copy is the only one
+    private File loadableDataFile(String fileName) {
+        File file = getDataFile(fileName);
+        File temp = getDataFile(fileName + ".tmp");
+        return (!file.exists() && temp.exists()) ? temp : file;
+    }
+
     private void saveLUT() throws IOException {
 //        DataOutputStream writer = new DataOutputStream(new RobocodeFileOutputStream(getDataFile("statistics.txt").getAbsolutePath(), true));
         boolean writeString = true;
+        CheckpointEvent event = new CheckpointEvent();
+        event.begin();
 
         DataOutputStream writer = new DataOutputStream(new RobocodeFileOutputStream(getDataFile("LUT.txt").getAbsolutePath(), true));
         for (Map.Entry<String, Double> entry : myLUT.getLookupTable().entrySet()) {
@@ -768,6 +943,7 @@ public class RL_robot extends AdvancedRobot {
             }
         }
         writer.close();
+        event.record(getDataFile("LUT.txt").getPath(), sampleCount, writer.size());
     }
 
     private void loadLUT() throws IOException {
@@ -0,0 +1,125 @@
+package bots;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static bots.WaveSurfing.BINS;
+
+/**
+ * Where the enemy has hit us, per guess factor bin, segmented by the situation at fire time: the fire distance,
+ * our lateral velocity and how close we were to a wall. All segments live in one flat array, segment s taking the
+ * BINS entries from s * BINS, so a danger lookup is a single array read.
+ *
+ * A hit is blended into its segment as a rolling average (older hits fade by 1 - 1 / ROLLING_DEPTH) and, with
+ * SHARED_WEIGHT of that weight, into every other segment, so segments we rarely see still learn the overall shape.
+ * Not thread safe: only the robot's thread may use it.
+ */
+public class SurfStats {
+
+    // segment boundaries; a value at or past the last boundary goes to the last segment
+    private static final double[] DISTANCES = {200, 350, 500};
+    private static final double[] LATERAL_VELOCITIES = {1, 5};
+    private static final double[] WALL_DISTANCES = {75, 150};
+
+    public static final int DISTANCE_SEGMENTS = DISTANCES.length + 1;
+    public static final int LATERAL_VELOCITY_SEGMENTS = LATERAL_VELOCITIES.length + 1;
+    public static final int WALL_SEGMENTS = WALL_DISTANCES.length + 1;
+    public static final int SEGMENTS = DISTANCE_SEGMENTS * LATERAL_VELOCITY_SEGMENTS * WALL_SEGMENTS;
+
+    public static final double ROLLING_DEPTH = 10;
+    public static final double SHARED_WEIGHT = 0.1;
+
+    private static final int MAGIC = 0x53555246;    // "SURF"
+
+    // KERNEL[BINS - 1 + d] = 1 / (d^2 + 1) for a bin d away from the hit: 1 on the hit, 1/2 next to it, 1/5, ...
+    private static final double[] KERNEL = new double[2 * BINS - 1];
+
+    static {
+        for (int d = -(BINS - 1); d < BINS; d++) KERNEL[BINS - 1 + d] = 1.0 / (d * d + 1);
+    }
+
+    private final double[] stats = new double[SEGMENTS * BINS];
+
+    /**
+     * @param distance Distance between the enemy and us when it fired
+     * @param lateralVelocity Our velocity perpendicular to the enemy, either sign
+     * @param wallDistance Our distance to the closest wall
+     * @return The segment of the situation
+     */
+    public static int segment(double distance, double lateralVelocity, double wallDistance) {
+        return (slice(DISTANCES, distance) * LATERAL_VELOCITY_SEGMENTS
+                + slice(LATERAL_VELOCITIES, Math.abs(lateralVelocity))) * WALL_SEGMENTS
+                + slice(WALL_DISTANCES, wallDistance);
+    }
+
+    private static int slice(double[] boundaries, double value) {
+        int i = 0;
+        while (i < boundaries.length && value >= boundaries[i]) i++;
+        return i;
+    }
+
+    public double danger(int segment, int bin) {
+        return stats[segment * BINS + bin];
+    }
+
+    /**
+     * Blend a hit into the stats
+     * @param segment The segment of the wave that hit us
+     * @param bin The guess factor bin we were hit on
+     */
+    public void logHit(int segment, int bin) {
+        double weight = 1 / ROLLING_DEPTH;
+        for (int s = 0; s < SEGMENTS; s++) {
+            double w = (s == segment) ? weight : weight * SHARED_WEIGHT;
+            double keep = 1 - w;
+            int offset = s * BINS;
+            int k = BINS - 1 - bin;     // KERNEL[k + x] is the kernel value of bin x
+            for (int x = 0; x < BINS; x++) stats[offset + x] = stats[offset + x] * keep + KERNEL[k + x] * w;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(stats, 0);
+    }
+
+    /**
+     * Write the stats to a stream, and close it
+     */
+    public void save(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(SEGMENTS);
+            out.writeInt(BINS);
+            for (double value : stats) out.writeDouble(value);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read stats written by save
+     * @throws IOException if the file does not hold stats of the same segments and bins
+     */
+    public void load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a surf stats file");
+            int segments = in.readInt();
+            int bins = in.readInt();
+            if (segments != SEGMENTS || bins != BINS)
+                throw new IOException(file + " has " + segments + " segments of " + bins + " bins, expected "
+                        + SEGMENTS + " of " + BINS);
+            for (int i = 0; i < stats.length; i++) stats[i] = in.readDouble();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package bots;
+
+import robocode.util.Utils;
+import util.FastMath;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The wave surfing math of BasicWaveSurferBot, free of robot state so it can be benchmarked and tested.
+ * Assumes an 800x600 battle field.
+ */
+public final class WaveSurfing {
+
+    private WaveSurfing() {
+
+    }
+
+    public static final int BINS = 47;
+
+    /** Use the FastMath tables instead of Math for the trigonometry below (see FastMath for the error bounds) */
+    public static final boolean fastMath = false;
+    public static final double ARENA_WIDTH = 800;
+    public static final double ARENA_HEIGHT = 600;
+
+    /** This is a rectangle that represents an 800x600 battle field,
+     * used for a simple, iterative WallSmoothing method (by PEZ).
+     * If you're not familiar with WallSmoothing, the wall stick indicates
+     * the amount of space we try to always have on either end of the tank
+     * (extending straight out the front or back) before touching a wall.
+     */
+    private static final Rectangle2D.Double FIELD_RECT
+            = new java.awt.geom.Rectangle2D.Double(18, 18, 764, 564);
+    public static final double WALL_STICK = 140;
+
+    private static final double SMOOTHING_MARGIN = 0.005;
+    private static final double COS_MARGIN = Math.cos(SMOOTHING_MARGIN);
+    private static final double SIN_MARGIN = Math.sin(SMOOTHING_MARGIN);
+
+    /**
+     * Closed-form wall smoothing, the same as iterativeWallSmoothing without its trigonometry.
+     * Each pass turns the stick so that its end just touches the wall it crosses: with r = wall distance / WALL_STICK
+     * the turn from the wall normal is acos(r) + margin, whose cosine and sine are r and sqrt(1 - r^2) rotated by the
+     * margin, so the new test point needs no sin or cos. A second pass is only needed in corners.
+     * x/y = current coordinates
+     * startAngle = absolute angle that tank starts off moving
+     * orientation = 1 if orbiting enemy clockwise, -1 if orbiting counter-clockwise
+     */
+    public static double wallSmoothing(double x, double y, double startAngle, int orientation) {
+        double angle = startAngle + (4*Math.PI);    // keep the angle positive for the int casts below
+
+        double testX = x + (sin(angle)*WALL_STICK);
+        double testY = y + (cos(angle)*WALL_STICK);
+        double wallDistanceX = Math.min(x - 18, ARENA_WIDTH - x - 18);
+        double wallDistanceY = Math.min(y - 18, ARENA_HEIGHT - y - 18);
+
+        double adjacent = 0;
+        int g = 0;
+
+        while (!inField(testX, testY) && g++ < 25) {
+            double testDistanceX = Math.min(testX - 18, ARENA_WIDTH - testX - 18);
+            double testDistanceY = Math.min(testY - 18, ARENA_HEIGHT - testY - 18);
+            double sign;    // sin or cos of the wall normal, which is 1 or -1
+            if (testDistanceY < 0 && testDistanceY < testDistanceX) {
+                // North or South wall: turn from heading 0 or PI
+                int k = (int)((angle + (Math.PI/2)) / Math.PI);
+                adjacent = Math.abs(wallDistanceY);
+                double r = adjacent / WALL_STICK;
+                double s = Math.sqrt(1 - r*r);
+                sign = (k % 2 == 0) ? 1 : -1;
+                angle = k*Math.PI + orientation*(acos(r) + SMOOTHING_MARGIN);
+                testX = x + sign*orientation*(s*COS_MARGIN + r*SIN_MARGIN)*WALL_STICK;
+                testY = y + sign*(r*COS_MARGIN - s*SIN_MARGIN)*WALL_STICK;
+            } else if (testDistanceX < 0 && testDistanceX <= testDistanceY) {
+                // East or West wall: turn from heading PI/2 or 3PI/2
+                int k = (int)(angle / Math.PI);
+                adjacent = Math.abs(wallDistanceX);
+                double r = adjacent / WALL_STICK;
+                double s = Math.sqrt(1 - r*r);
+                sign = (k % 2 == 0) ? 1 : -1;
+                angle = k*Math.PI + (Math.PI/2) + orientation*(acos(r) + SMOOTHING_MARGIN);
+                testX = x + sign*(r*COS_MARGIN - s*SIN_MARGIN)*WALL_STICK;
+                testY = y - sign*orientation*(s*COS_MARGIN + r*SIN_MARGIN)*WALL_STICK;
+            } else {
+                // exactly on the far edge of the field: turn as the iterative version does
+                angle += orientation*(acos(adjacent/WALL_STICK) + SMOOTHING_MARGIN);
+                testX = x + (sin(angle)*WALL_STICK);
+                testY = y + (cos(angle)*WALL_STICK);
+            }
+        }
+
+        return angle;
+    }
+
+    // the same test as FIELD_RECT.contains
+    private static boolean inField(double x, double y) {
+        return x >= 18 && y >= 18 && x < ARENA_WIDTH - 18 && y < ARENA_HEIGHT - 18;
+    }
+
+    /**
+     * iterative wall smoothing algorithm, the reference of wallSmoothing
+     * x/y = current coordinates
+     * startAngle = absolute angle that tank starts off moving - this is the angle
+     *   they will be moving at if there is no wall smoothing taking place.
+     * orientation = 1 if orbiting enemy clockwise, -1 if orbiting counter-clockwise
+     */
+    public static double iterativeWallSmoothing(double x, double y, double startAngle, int orientation) {
+
+        double angle = startAngle;
+
+        // in Java, (-3 MOD 4) is not 1, so make sure we have some excess
+        // positivity here
+        angle += (4*Math.PI);
+
+        double testX = x + (Math.sin(angle)*WALL_STICK);
+        double testY = y + (Math.cos(angle)*WALL_STICK);
+        double wallDistanceX = Math.min(x - 18, ARENA_WIDTH - x - 18);
+        double wallDistanceY = Math.min(y - 18, ARENA_HEIGHT - y - 18);
+        double testDistanceX = Math.min(testX - 18, ARENA_WIDTH - testX - 18);
+        double testDistanceY = Math.min(testY - 18, ARENA_HEIGHT - testY - 18);
+
+        double adjacent = 0;
+        int g = 0; // because I'm paranoid about potential infinite loops
+
+        while (!FIELD_RECT.contains(testX, testY) && g++ < 25) {
+            if (testDistanceY < 0 && testDistanceY < testDistanceX) {
+                // wall smooth North or South wall
+                angle = ((int)((angle + (Math.PI/2)) / Math.PI)) * Math.PI;
+                adjacent = Math.abs(wallDistanceY);
+            } else if (testDistanceX < 0 && testDistanceX <= testDistanceY) {
+                // wall smooth East or West wall
+                angle = (((int)(angle / Math.PI)) * Math.PI) + (Math.PI/2);
+                adjacent = Math.abs(wallDistanceX);
+            }
+
+            // use your own equivalent of (1 / POSITIVE_INFINITY) instead of 0.005
+            // if you want to stay closer to the wall ;)
+            angle += 1 *orientation*
+                    (Math.abs(Math.acos(adjacent/WALL_STICK)) + 0.005);
+
+            testX = x + (Math.sin(angle)*WALL_STICK);
+            testY = y + (Math.cos(angle)*WALL_STICK);
+            testDistanceX = Math.min(testX - 18, ARENA_WIDTH - testX - 18);
+            testDistanceY = Math.min(testY - 18, ARENA_HEIGHT - testY - 18);
+        }
+
+        return angle; // you may want to normalize this
+    }
+
+    /**
+     * Simulate our movement, orbiting the fire location of a wave, until the wave reaches us.
+     * The robot uses the allocation-free MovementPredictor; this is kept as its reference.
+     * @param location Our current location
+     * @param velocity Our current velocity
+     * @param heading Our current heading in radians
+     * @param surfWave The wave we are surfing
+     * @param direction 1 to orbit clockwise, -1 counter-clockwise
+     * @return Where the wave intercepts us
+     */
+    public static Point2D.Double predictPosition(Point2D.Double location, double velocity, double heading,
+                                                 EnemyWave surfWave, int direction) {
+        Point2D.Double predictedPosition = (Point2D.Double)location.clone();
+        double predictedVelocity = velocity;
+        double predictedHeading = heading;
+        double maxTurning, moveAngle, moveDir;
+
+        int counter = 0; // number of ticks in the future
+        boolean intercepted = false;
+
+        do {    // the rest of these code comments are rozu's
+            moveAngle = wallSmoothing(predictedPosition.x, predictedPosition.y, absoluteBearing(surfWave.fireLocation,
+                            predictedPosition) + (direction * (Math.PI/2)), direction)
+                            - predictedHeading;
+            moveDir = 1;
+
+            if(cos(moveAngle) < 0) {
+                moveAngle += Math.PI;
+                moveDir = -1;
+            }
+
+            moveAngle = Utils.normalRelativeAngle(moveAngle);
+
+            // maxTurning is built in like this, you can't turn more then this in one tick
+            maxTurning = Math.PI/720d*(40d - 3d*Math.abs(predictedVelocity));
+            predictedHeading = Utils.normalRelativeAngle(predictedHeading
+                    + limit(-maxTurning, moveAngle, maxTurning));
+
+            // this one is nice ;). if predictedVelocity and moveDir have
+            // different signs you want to breack down
+            // otherwise you want to accelerate (look at the factor "2")
+            predictedVelocity +=
+                    (predictedVelocity * moveDir < 0 ? 2*moveDir : moveDir);
+            predictedVelocity = limit(-8, predictedVelocity, 8);
+
+            // calculate the new predicted position
+            predictedPosition = project(predictedPosition, predictedHeading,
+                    predictedVelocity);
+
+            counter++;
+
+            if (predictedPosition.distance(surfWave.fireLocation) <
+                    surfWave.distanceTraveled + (counter * surfWave.bulletVelocity)
+                            + surfWave.bulletVelocity) {
+                intercepted = true;
+            }
+        } while(!intercepted && counter < 500);
+
+        return predictedPosition;
+    }
+
+    // Given the EnemyWave that the bullet was on, and the point where we
+    // were hit, calculate the index into our stat array for that factor.
+    public static int getFactorIndex(EnemyWave ew, Point2D.Double targetLocation) {
+        return getFactorIndex(ew, targetLocation.x, targetLocation.y);
+    }
+
+    public static int getFactorIndex(EnemyWave ew, double targetX, double targetY) {
+        double offsetAngle = (atan2(targetX - ew.fireLocation.x, targetY - ew.fireLocation.y)
+                - ew.directAngle);
+        double factor = Utils.normalRelativeAngle(offsetAngle)
+                / maxEscapeAngle(ew.bulletVelocity) * ew.direction;
+
+        return (int)limit(0,
+                (factor * ((BINS - 1) / 2)) + ((BINS - 1) / 2),
+                BINS - 1);
+    }
+
+    public static Point2D.Double project(Point2D.Double sourceLocation,
+                                         double angle, double length) {
+        return new Point2D.Double(sourceLocation.x + sin(angle) * length,
+                sourceLocation.y + cos(angle) * length);
+    }
+
+    public static double absoluteBearing(Point2D.Double source, Point2D.Double target) {
+        return atan2(target.x - source.x, target.y - source.y);
+    }
+
+    public static double limit(double min, double value, double max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    public static double bulletVelocity(double power) {
+        return (20.0 - (3.0*power));
+    }
+
+    public static double maxEscapeAngle(double velocity) {
+        return asin(8.0/velocity);
+    }
+
+    public static double sin(double a) {
+        return fastMath ? FastMath.sin(a) : Math.sin(a);
+    }
+
+    public static double cos(double a) {
+        return fastMath ? FastMath.cos(a) : Math.cos(a);
+    }
+
+    public static double atan2(double y, double x) {
+        return fastMath ? FastMath.atan2(y, x) : Math.atan2(y, x);
+    }
+
+    public static double asin(double v) {
+        return fastMath ? FastMath.asin(v) : Math.asin(v);
+    }
+
+    public static double acos(double v) {
+        return fastMath ? FastMath.acos(v) : Math.acos(v);
+    }
+}
@@ -0,0 +1,27 @@
+package interfaces;
+
+/**
+ * Gives access to all the weights of a function approximator as one flat array.
+ * The order of the weights is up to the implementation, but it must be the same
+ * for every instance with the same structure, so the weights of one network can be
+ * copied into another one (e.g. a target network) with plain array copies.
+ */
+public interface FlatWeightsInterface {
+
+    /**
+     * @return The total number of weights (including the bias weights)
+     */
+    public int getNumWeights();
+
+    /**
+     * Copy all the weights into the given array.
+     * @param dest An array of at least getNumWeights() elements
+     */
+    public void getWeights(double[] dest);
+
+    /**
+     * Overwrite all the weights with the values in the given array.
+     * @param src An array of at least getNumWeights() elements, in the order written by getWeights
+     */
+    public void setWeights(double[] src);
+}
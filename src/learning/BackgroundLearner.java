@@ -0,0 +1,156 @@
+package learning;
+
+import interfaces.CommonInterface;
+import interfaces.FlatWeightsInterface;
+import neuralNet.TargetNetwork;
+import profiling.TDUpdateEvent;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the Q-learning updates on its own thread, so the robot's thread only has to
+ * queue transitions and run inference.
+ *
+ * The learner owns the network it trains: no other thread may use it while the learner runs.
+ * Every publishInterval updates it publishes a WeightSnapshot, which the robot copies into
+ * its own inference network.
+ *
+ * Robocode stops the threads of a robot when the round ends, so stop the learner before then
+ * (and before saving the network), drain what is left in the queue, and start it again next round.
+ *
+ * @param <T> The type of the network being trained
+ */
+public class BackgroundLearner<T extends CommonInterface & FlatWeightsInterface> implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = 200000;   // 0.2 ms between polls of an empty queue
+
+    private final T network;
+    private final TargetNetwork<?> targetNetwork;
+    private final TransitionQueue queue;
+    private final double alpha;
+    private final double gamma;
+    private final int publishInterval;
+
+    private final AtomicReference<WeightSnapshot> latest = new AtomicReference<>();
+    private final Transition transition;
+    private final double[] weights;
+
+    private volatile boolean running = false;
+    private volatile long numUpdates = 0;
+    private Thread thread;
+
+    /**
+     * @param network         The network to train, owned by the learner from now on
+     * @param targetNetwork   Target network for the bootstrap values, or null to bootstrap from the trained network
+     * @param queue           The queue the robot offers transitions to
+     * @param width           The length of a state action vector
+     * @param numActions      The number of actions
+     * @param alpha           The learning rate of the Q update
+     * @param gamma           The discount factor
+     * @param publishInterval Number of updates between two published snapshots
+     */
+    public BackgroundLearner(T network, TargetNetwork<?> targetNetwork, TransitionQueue queue,
+                             int width, int numActions, double alpha, double gamma, int publishInterval) {
+        this.network = network;
+        this.targetNetwork = targetNetwork;
+        this.queue = queue;
+        this.alpha = alpha;
+        this.gamma = gamma;
+        this.publishInterval = publishInterval;
+        transition = new Transition(width, numActions);
+        weights = new double[network.getNumWeights()];
+        publish();
+    }
+
+    public synchronized void start() {
+        if (isRunning()) return;
+        running = true;
+        thread = new Thread(this, "BackgroundLearner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * stop the learner thread after the update in progress, and publish the final weights
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        publish();
+    }
+
+    /**
+     * train on the transitions still in the queue on the caller's thread, then publish the weights.
+     * Only call it while the learner is stopped.
+     * @return The number of transitions trained on
+     */
+    public int drain() {
+        if (isRunning()) throw new IllegalStateException("the learner thread is still running");
+        int drained = 0;
+        while (queue.poll(transition)) {
+            learn(transition);
+            drained++;
+        }
+        publish();
+        return drained;
+    }
+
+    public boolean isRunning() {
+        return running && thread != null && thread.isAlive();
+    }
+
+    public long getNumUpdates() {
+        return numUpdates;
+    }
+
+    /**
+     * @return The most recently published weights (never null)
+     */
+    public WeightSnapshot getLatest() {
+        return latest.get();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (queue.poll(transition)) {
+                learn(transition);
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void learn(Transition t) {
+        TDUpdateEvent event = TDUpdateEvent.start();
+        double maxQ = 0.0;
+        if (!t.terminal) {
+            maxQ = Double.NEGATIVE_INFINITY;
+            for (double[] next : t.nextStateActions) {
+                double q = (targetNetwork != null) ? targetNetwork.outputFor(next) : network.outputFor(next);
+                if (q > maxQ) maxQ = q;
+            }
+        }
+        double previousQ = network.outputFor(t.stateAction);
+        double errorQ = alpha * (t.reward + gamma * maxQ - previousQ);
+        network.train(t.stateAction, previousQ + errorQ);
+        if (targetNetwork != null) targetNetwork.step(network);
+        event.record("NN", t.reward, errorQ);
+
+        numUpdates++;
+        if (numUpdates % publishInterval == 0) publish();
+    }
+
+    private void publish() {
+        network.getWeights(weights);
+        latest.set(new WeightSnapshot(weights, numUpdates));
+    }
+}
@@ -0,0 +1,115 @@
+package learning;
+
+import interfaces.CommonInterface;
+
+/**
+ * n-step Q-learning: keeps the last n (state action, reward) pairs in a circular buffer and,
+ * once it is full, updates the oldest pair with the discounted n-step return
+ *
+ *      G = r_0 + GAMMA * r_1 + ... + GAMMA^(n-1) * r_(n-1) + GAMMA^n * maxQ(s_n, a')
+ *
+ * All storage is allocated up front. Works with any approximator through CommonInterface.
+ */
+public class NStepBuffer {
+
+    private final int n;
+    private final int width;
+    private final double alpha;
+    private final double[] gammaPow;    // GAMMA^0 .. GAMMA^n
+
+    private final double[][] stateActions;
+    private final double[] rewards;
+    private int head = 0;   // oldest entry
+    private int size = 0;
+
+    /**
+     * @param n     The number of steps before bootstrapping
+     * @param width The length of a state action vector
+     * @param alpha The learning rate of the Q update
+     * @param gamma The discount factor
+     */
+    public NStepBuffer(int n, int width, double alpha, double gamma) {
+        if (n < 1) throw new IllegalArgumentException("n must be at least 1, got " + n);
+        this.n = n;
+        this.width = width;
+        this.alpha = alpha;
+        gammaPow = new double[n + 1];
+        gammaPow[0] = 1.0;
+        for (int i = 1; i <= n; i++) gammaPow[i] = gammaPow[i - 1] * gamma;
+        stateActions = new double[n][width];
+        rewards = new double[n];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * add the next step, and update the oldest one if n steps are buffered
+     * @param stateAction The state action vector that was taken
+     * @param reward      The reward received for it
+     * @param bootstrapQ  maxQ of the state reached after this step
+     * @param q           The approximator to update
+     * @return The error Q of the update, 0 if the buffer is not full yet
+     */
+    public double push(double[] stateAction, double reward, double bootstrapQ, CommonInterface q) {
+        int slot = (head + size) % n;
+        System.arraycopy(stateAction, 0, stateActions[slot], 0, width);
+        rewards[slot] = reward;
+        size++;
+        return (size == n) ? updateOldest(bootstrapQ, q) : 0.0;
+    }
+
+    /**
+     * @return true if the next push updates a step, i.e. n - 1 steps are waiting for their return
+     */
+    public boolean pushUpdates() {
+        return size == n - 1;
+    }
+
+    /**
+     * update the oldest buffered step with the rewards that are left, e.g. when the round ends.
+     * Call it while size() > 0 to record the error of every update.
+     * @param bootstrapQ maxQ of the state reached after the last step, 0 if the episode has terminated
+     * @param q          The approximator to update
+     * @return The error Q of the update
+     */
+    public double flushOne(double bootstrapQ, CommonInterface q) {
+        if (size == 0) throw new IllegalStateException("no step to flush");
+        return updateOldest(bootstrapQ, q);
+    }
+
+    /**
+     * update every buffered step with the rewards that are left
+     * @return The sum of the error Q of the updates
+     * @see #flushOne(double, CommonInterface)
+     */
+    public double flush(double bootstrapQ, CommonInterface q) {
+        double sumErrorQ = 0.0;
+        while (size > 0) sumErrorQ += updateOldest(bootstrapQ, q);
+        return sumErrorQ;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // update the oldest step with the return of all the buffered steps, then drop it
+    private double updateOldest(double bootstrapQ, CommonInterface q) {
+        double returnG = 0.0;
+        for (int i = 0; i < size; i++) {
+            returnG += gammaPow[i] * rewards[(head + i) % n];
+        }
+        returnG += gammaPow[size] * bootstrapQ;
+
+        double[] oldest = stateActions[head];
+        double previousQ = q.outputFor(oldest);
+        double errorQ = alpha * (returnG - previousQ);
+        q.train(oldest, previousQ + errorQ);
+
+        head = (head + 1) % n;
+        size--;
+        return errorQ;
+    }
+}
@@ -0,0 +1,48 @@
+package learning;
+
+/**
+ * Collects the rewards of all the events that happen between two decisions, so they can be
+ * applied with a single TD update at the next decision point instead of one update per event.
+ */
+public class RewardAccumulator {
+
+    public enum Event {
+        HIT_BY_BULLET, HIT_WALL, HIT_ROBOT, BULLET_HIT, BULLET_HIT_BULLET, WAVE_DODGED, DEATH, ROBOT_DEATH
+    }
+
+    private double pendingReward = 0.0;
+    private int pendingEvents = 0;
+
+    /**
+     * @param reward The reward of an event
+     */
+    public void add(double reward) {
+        pendingReward += reward;
+        pendingEvents++;
+    }
+
+    /**
+     * @return true if any event happened since the last drain (even if the rewards sum up to 0)
+     */
+    public boolean hasPending() {
+        return pendingEvents > 0;
+    }
+
+    public double getPendingReward() {
+        return pendingReward;
+    }
+
+    /**
+     * @return The sum of the pending rewards, which are then cleared
+     */
+    public double drain() {
+        double reward = pendingReward;
+        clearPending();
+        return reward;
+    }
+
+    public void clearPending() {
+        pendingReward = 0.0;
+        pendingEvents = 0;
+    }
+}
@@ -0,0 +1,25 @@
+package learning;
+
+/**
+ * A mutable holder for one (s, a, r, s') transition, filled in place by TransitionQueue.poll
+ * so the consumer does not allocate anything per transition.
+ */
+public class Transition {
+
+    // the state action vector that was taken
+    public final double[] stateAction;
+    // the state action vectors of every action available in the next state, to find maxQ(s',a')
+    public final double[][] nextStateActions;
+    public double reward;
+    // true if there is no next state (e.g. the round is over), so nothing is bootstrapped
+    public boolean terminal;
+
+    /**
+     * @param width      The length of a state action vector
+     * @param numActions The number of actions
+     */
+    public Transition(int width, int numActions) {
+        stateAction = new double[width];
+        nextStateActions = new double[numActions][width];
+    }
+}
@@ -0,0 +1,98 @@
+package learning;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free single-producer/single-consumer queue of transitions.
+ * All slots are preallocated as flat primitive arrays; offer copies the transition in
+ * and poll copies it out into a reusable Transition, so neither side allocates.
+ *
+ * Exactly one thread may call offer (the robot) and exactly one thread may call poll (the learner).
+ */
+public class TransitionQueue {
+
+    private final int width;
+    private final int numActions;
+    private final int mask;
+
+    private final double[] stateActions;
+    private final double[] nextStateActions;
+    private final double[] rewards;
+    private final boolean[] terminals;
+
+    // next slot to write (only advanced by the producer) and next slot to read (only advanced by the consumer)
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    // producer's last view of head, so it only reads the consumer's counter when the queue looks full
+    private long cachedHead = 0;
+
+    /**
+     * @param capacity   The maximum number of pending transitions, rounded up to a power of two
+     * @param width      The length of a state action vector
+     * @param numActions The number of actions
+     */
+    public TransitionQueue(int capacity, int width, int numActions) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.width = width;
+        this.numActions = numActions;
+        this.mask = size - 1;
+        stateActions = new double[size * width];
+        nextStateActions = new double[size * numActions * width];
+        rewards = new double[size];
+        terminals = new boolean[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Copy a transition into the queue. Producer thread only.
+     * @param stateAction      The state action vector that was taken
+     * @param reward           The reward received for it
+     * @param nextStateActions The state action vectors of all actions in the next state (rows may be longer than needed)
+     * @param terminal         True if there is no next state
+     * @return false if the queue is full and the transition was dropped
+     */
+    public boolean offer(double[] stateAction, double reward, double[][] nextStateActions, boolean terminal) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) return false;
+        }
+        int slot = (int) (t & mask);
+        System.arraycopy(stateAction, 0, stateActions, slot * width, width);
+        for (int a = 0; a < numActions; a++) {
+            System.arraycopy(nextStateActions[a], 0, this.nextStateActions, (slot * numActions + a) * width, width);
+        }
+        rewards[slot] = reward;
+        terminals[slot] = terminal;
+        // publish the slot to the consumer
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Copy the oldest transition into out. Consumer thread only.
+     * @param out The holder to fill
+     * @return false if the queue is empty
+     */
+    public boolean poll(Transition out) {
+        long h = head.get();
+        if (h >= tail.get()) return false;
+        int slot = (int) (h & mask);
+        System.arraycopy(stateActions, slot * width, out.stateAction, 0, width);
+        for (int a = 0; a < numActions; a++) {
+            System.arraycopy(nextStateActions, (slot * numActions + a) * width, out.nextStateActions[a], 0, width);
+        }
+        out.reward = rewards[slot];
+        out.terminal = terminals[slot];
+        // hand the slot back to the producer
+        head.lazySet(h + 1);
+        return true;
+    }
+}
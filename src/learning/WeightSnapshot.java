@@ -0,0 +1,35 @@
+package learning;
+
+import interfaces.FlatWeightsInterface;
+
+/**
+ * An immutable copy of the weights of a network, published by the learner thread and
+ * read by the robot's thread. Since it never changes after construction it can be
+ * handed over through a single atomic reference without any locking.
+ */
+public final class WeightSnapshot {
+
+    private final double[] weights;
+    private final long version;
+
+    /**
+     * @param weights The weights to copy
+     * @param version The number of updates the weights include
+     */
+    public WeightSnapshot(double[] weights, long version) {
+        this.weights = weights.clone();
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * load the weights into a network
+     * @param network A network with the same structure as the one the snapshot was taken from
+     */
+    public void applyTo(FlatWeightsInterface network) {
+        network.setWeights(weights);
+    }
+}
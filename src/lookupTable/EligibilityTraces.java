@@ -0,0 +1,118 @@
+package lookupTable;
+
+/**
+ * A sparse set of eligibility traces for Watkins's Q(lambda) on the LUT.
+ *
+ * Only the recently visited state action pairs are kept, in two parallel arrays of at most
+ * capacity entries. Traces that decay below the threshold are pruned, so an update costs
+ * O(number of active traces) rather than O(size of the LUT).
+ */
+public class EligibilityTraces {
+
+    private final String[] keys;
+    private final double[] traces;
+    private final double threshold;
+    private int size = 0;
+
+    /**
+     * @param capacity  The maximum number of active traces; the weakest trace is dropped when it is exceeded
+     * @param threshold Traces that decay below this value are pruned
+     */
+    public EligibilityTraces(int capacity, double threshold) {
+        keys = new String[capacity];
+        traces = new double[capacity];
+        this.threshold = threshold;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key The LUT index of a state action pair
+     * @return The trace of this pair, 0 if it has none
+     */
+    public double get(String key) {
+        int i = find(key);
+        return (i < 0) ? 0.0 : traces[i];
+    }
+
+    /**
+     * mark a state action pair as just visited (replacing traces: its trace is set to 1)
+     * @param key The LUT index of the visited state action pair
+     */
+    public void visit(String key) {
+        int i = find(key);
+        if (i < 0) {
+            if (size == keys.length) remove(weakest());
+            i = size++;
+            keys[i] = key;
+        }
+        traces[i] = 1.0;
+    }
+
+    /**
+     * apply a TD error to every pair with an active trace: Q(s,a) += errorQ * e(s,a)
+     * @param lut    The lookup table to update
+     * @param errorQ The TD error, already scaled by the learning rate
+     */
+    public void update(LUT lut, double errorQ) {
+        for (int i = 0; i < size; i++) {
+            lut.addValue(keys[i], errorQ * traces[i]);
+        }
+    }
+
+    /**
+     * decay all traces after a greedy action, and prune the ones that fall below the threshold
+     * @param gammaLambda The decay factor GAMMA * LAMBDA
+     */
+    public void decay(double gammaLambda) {
+        for (int i = 0; i < size; ) {
+            traces[i] *= gammaLambda;
+            if (traces[i] < threshold) remove(i);   // the last entry is moved into i, so check i again
+            else i++;
+        }
+    }
+
+    /**
+     * Watkins's rule, after the update of a step: the traces decay by gammaLambda while we follow the greedy policy,
+     * and are cut after an exploratory action, whose return says nothing about the greedy policy of the pairs before it
+     * @param greedy      true if the action just selected is the greedy one
+     * @param gammaLambda The decay factor GAMMA * LAMBDA
+     */
+    public void afterAction(boolean greedy, double gammaLambda) {
+        if (greedy) decay(gammaLambda);
+        else clear();
+    }
+
+    /**
+     * drop all traces: used after an exploratory action (Watkins) or at the end of a round
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) keys[i] = null;
+        size = 0;
+    }
+
+    private int find(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    private int weakest() {
+        int weakest = 0;
+        for (int i = 1; i < size; i++) {
+            if (traces[i] < traces[weakest]) weakest = i;
+        }
+        return weakest;
+    }
+
+    // swap-remove: move the last trace into the freed slot
+    private void remove(int i) {
+        size--;
+        keys[i] = keys[size];
+        traces[i] = traces[size];
+        keys[size] = null;
+    }
+}
@@ -57,7 +57,6 @@ public class LUT implements LUTInterface{
     public double outputFor(double[] X) {
         String i = indexFor(X);
         if(lookupTable.containsKey(i)){
-            System.out.println("Found a match state in the LUT! ");
             return lookupTable.get(i);
         } else return 0;
     }
@@ -69,6 +68,24 @@ public class LUT implements LUTInterface{
         return 0;
     }
 
+    /**
+     * @param index A key returned by indexFor
+     * @return The value stored for this key, 0 if there is none
+     */
+    public double getValue(String index) {
+        Double value = lookupTable.get(index);
+        return (value == null) ? 0 : value;
+    }
+
+    /**
+     * add delta to the value stored for a key (missing entries start at 0)
+     * @param index A key returned by indexFor
+     * @param delta The change of the value
+     */
+    public void addValue(String index, double delta) {
+        lookupTable.put(index, getValue(index) + delta);
+    }
+
     public double[] decodeKey(String key){
         double[] X = new double[argNumInputs];
         char[] charArray = key.toCharArray();
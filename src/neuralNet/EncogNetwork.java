@@ -0,0 +1,100 @@
+package neuralNet;
+
+import interfaces.CommonInterface;
+import interfaces.FlatWeightsInterface;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.persist.EncogDirectoryPersistence;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Wraps an Encog network with a single output so it can be used through the same
+ * interfaces as our own NeuralNet (and the LUT).
+ *
+ * outputFor runs the flat network directly on the caller's array and a preallocated output
+ * buffer, so predictions do not allocate. Like NeuralNet, an instance is not thread safe.
+ */
+public class EncogNetwork implements CommonInterface, FlatWeightsInterface {
+
+    private BasicNetwork network;
+    private double learningRate;
+    private double momentum;
+
+    // reused output buffer of the network
+    private final double[] output = new double[1];
+    // created on the first call to train, and kept so the momentum carries over between updates
+    private OnlineTrainer trainer;
+
+    /**
+     * @param network      The (finalized) Encog network
+     * @param learningRate The learning rate used by train
+     * @param momentum     The momentum used by train
+     */
+    public EncogNetwork(BasicNetwork network, double learningRate, double momentum) {
+        this.network = network;
+        this.learningRate = learningRate;
+        this.momentum = momentum;
+    }
+
+    public BasicNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return a new adapter around a deep copy of the network, with the same training parameters
+     */
+    public EncogNetwork copy() {
+        return new EncogNetwork((BasicNetwork) network.clone(), learningRate, momentum);
+    }
+
+    /**
+     * @param X The input vector, of exactly the input size of the network
+     * @return The output of the network
+     */
+    @Override
+    public double outputFor(double[] X) {
+        network.compute(X, output);
+        return output[0];
+    }
+
+    /**
+     * do a single stochastic gradient descent step towards argValue
+     * @return The error in the output before the update
+     */
+    @Override
+    public double train(double[] X, double argValue) {
+        double error = argValue - outputFor(X);
+        if (trainer == null) trainer = new OnlineTrainer(network, learningRate, momentum);
+        trainer.train(X, argValue);
+        return error;
+    }
+
+    @Override
+    public void save(File argFile) {
+        EncogDirectoryPersistence.saveObject(argFile, network);
+    }
+
+    @Override
+    public void load(String argFileName) throws IOException {
+        network = (BasicNetwork) EncogDirectoryPersistence.loadObject(new File(argFileName));
+        trainer = null;
+    }
+
+    @Override
+    public int getNumWeights() {
+        return network.getFlat().getWeights().length;
+    }
+
+    @Override
+    public void getWeights(double[] dest) {
+        double[] weights = network.getFlat().getWeights();
+        System.arraycopy(weights, 0, dest, 0, weights.length);
+    }
+
+    @Override
+    public void setWeights(double[] src) {
+        double[] weights = network.getFlat().getWeights();
+        System.arraycopy(src, 0, weights, 0, weights.length);
+    }
+}
@@ -4,11 +4,12 @@ import java.io.*;
 import java.util.HashMap;
 import java.util.Random;
 
+import interfaces.FlatWeightsInterface;
 import interfaces.NeuralNetInterface;
 
 import static java.lang.Double.isNaN;
 
-public class NeuralNet implements NeuralNetInterface {
+public class NeuralNet implements NeuralNetInterface, FlatWeightsInterface {
 
     // param inherited from the interface
     private int argNumInputs;
@@ -173,6 +174,48 @@ public class NeuralNet implements NeuralNetInterface {
         }
     }
 
+    /**
+     * @return the number of weights, including the bias weights of the hidden and output layer
+     */
+    @Override
+    public int getNumWeights() {
+        return (argNumInputs + 1) * argNumHidden + (argNumHidden + 1) * argNumOutputs;
+    }
+
+    /**
+     * copy all weights into a flat array: input/hidden weights first (row by row), then hidden/output weights
+     * @param dest The array to copy the weights to
+     */
+    @Override
+    public void getWeights(double[] dest) {
+        int offset = 0;
+        for (int input = 0; input < argNumInputs + 1; input++) {        // +1 for bias
+            System.arraycopy(weightInputHidden[input], 0, dest, offset, argNumHidden);
+            offset += argNumHidden;
+        }
+        for (int hidden = 0; hidden < argNumHidden + 1; hidden++) {     // +1 for bias
+            System.arraycopy(weightHiddenOutput[hidden], 0, dest, offset, argNumOutputs);
+            offset += argNumOutputs;
+        }
+    }
+
+    /**
+     * overwrite all weights from a flat array written by getWeights. The momentum terms are left untouched.
+     * @param src The array to copy the weights from
+     */
+    @Override
+    public void setWeights(double[] src) {
+        int offset = 0;
+        for (int input = 0; input < argNumInputs + 1; input++) {        // +1 for bias
+            System.arraycopy(src, offset, weightInputHidden[input], 0, argNumHidden);
+            offset += argNumHidden;
+        }
+        for (int hidden = 0; hidden < argNumHidden + 1; hidden++) {     // +1 for bias
+            System.arraycopy(src, offset, weightHiddenOutput[hidden], 0, argNumOutputs);
+            offset += argNumOutputs;
+        }
+    }
+
     /**
      * get the output for a given input using the neural network.
      * @param X The input vector. An array of doubles.
@@ -202,14 +245,27 @@ public class NeuralNet implements NeuralNetInterface {
         return outputNeuron[0];
     }
 
+    /**
+     * save the weights to a binary checkpoint file
+     * @param argFile The file to write
+     */
     @Override
     public void save(File argFile) {
-
+        try {
+            WeightCheckpoint.write(this, 0, argFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
+    /**
+     * load the weights from a checkpoint file written by save
+     * @param argFileName The file to read
+     * @throws IOException if the file can't be read or was saved from a network of a different size
+     */
     @Override
     public void load(String argFileName) throws IOException {
-
+        WeightCheckpoint.read(this, new File(argFileName));
     }
 
     /**
@@ -0,0 +1,57 @@
+package neuralNet;
+
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.training.propagation.sgd.StochasticGradientDescent;
+import org.encog.neural.networks.training.propagation.sgd.update.MomentumUpdate;
+
+/**
+ * Online (one sample at a time) training of an Encog network with a single, long-lived
+ * stochastic gradient descent trainer.
+ *
+ * The trainer works on a data set with one pair whose input and ideal arrays are overwritten
+ * for every sample, so its gradient buffers and the momentum of the update rule are kept
+ * from one update to the next instead of being thrown away with a new trainer per sample.
+ */
+public class OnlineTrainer {
+
+    private final double[] input;
+    private final double[] ideal;
+    private final BasicMLDataPair pair;
+    private final StochasticGradientDescent sgd;
+
+    /**
+     * @param network      The (finalized) network to train
+     * @param learningRate The learning rate
+     * @param momentum     The momentum
+     */
+    public OnlineTrainer(BasicNetwork network, double learningRate, double momentum) {
+        BasicMLData inputData = new BasicMLData(network.getInputCount());
+        BasicMLData idealData = new BasicMLData(network.getOutputCount());
+        input = inputData.getData();
+        ideal = idealData.getData();
+        pair = new BasicMLDataPair(inputData, idealData);
+
+        BasicMLDataSet trainingSet = new BasicMLDataSet();
+        trainingSet.add(pair);
+        sgd = new StochasticGradientDescent(network, trainingSet);
+        sgd.setLearningRate(learningRate);
+        sgd.setMomentum(momentum);
+        sgd.setUpdateRule(new MomentumUpdate());
+    }
+
+    /**
+     * one gradient descent step towards the expected output
+     * @param X        The input vector
+     * @param argValue The expected (single) output
+     */
+    public void train(double[] X, double argValue) {
+        System.arraycopy(X, 0, input, 0, input.length);
+        ideal[0] = argValue;
+        // compute the gradients for this pair, then apply them with the momentum rule
+        sgd.process(pair);
+        sgd.update();
+    }
+}
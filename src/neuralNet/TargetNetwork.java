@@ -0,0 +1,101 @@
+package neuralNet;
+
+import interfaces.CommonInterface;
+import interfaces.FlatWeightsInterface;
+
+/**
+ * A frozen copy of a Q-network, used to compute the bootstrap target (GAMMA * maxQ(s',a'))
+ * while the online network is being trained.
+ *
+ * The frozen weights follow the online network in one of two ways:
+ *  - tau = 0: hard update, the online weights are copied over every syncInterval steps
+ *  - tau > 0: Polyak averaging on every step, w_target = tau * w_online + (1 - tau) * w_target
+ * Both are plain copies of the flat weight arrays, no serialization involved.
+ *
+ * @param <T> The type of the network, e.g. NeuralNet or EncogNetwork
+ */
+public class TargetNetwork<T extends CommonInterface & FlatWeightsInterface> {
+
+    private final T frozen;
+    private final int syncInterval;
+    private final double tau;
+
+    // scratch arrays, so syncing does not allocate
+    private final double[] onlineWeights;
+    private final double[] frozenWeights;
+
+    private long numSteps = 0;
+
+    /**
+     * @param frozen       The network holding the frozen weights. It must have the same structure as the online network.
+     * @param syncInterval Number of steps between two hard updates (ignored if tau > 0)
+     * @param tau          Polyak averaging rate in (0, 1]; 0 to use hard updates instead
+     */
+    public TargetNetwork(T frozen, int syncInterval, double tau) {
+        if (syncInterval < 1 || tau < 0 || tau > 1) {
+            throw new IllegalArgumentException("Invalid target network settings: syncInterval = " + syncInterval + ", tau = " + tau);
+        }
+        this.frozen = frozen;
+        this.syncInterval = syncInterval;
+        this.tau = tau;
+        onlineWeights = new double[frozen.getNumWeights()];
+        frozenWeights = new double[frozen.getNumWeights()];
+    }
+
+    public T getNetwork() {
+        return frozen;
+    }
+
+    public long getNumSteps() {
+        return numSteps;
+    }
+
+    /**
+     * @param X The state action vector
+     * @return The Q value given by the frozen weights
+     */
+    public double outputFor(double[] X) {
+        return frozen.outputFor(X);
+    }
+
+    /**
+     * To be called after each training step of the online network.
+     * @param online The network being trained
+     */
+    public void step(FlatWeightsInterface online) {
+        numSteps++;
+        if (tau > 0) blend(online);
+        else if (numSteps % syncInterval == 0) sync(online);
+    }
+
+    /**
+     * copy the online weights into the frozen network
+     * @param online The network being trained
+     */
+    public void sync(FlatWeightsInterface online) {
+        checkStructure(online);
+        online.getWeights(onlineWeights);
+        frozen.setWeights(onlineWeights);
+    }
+
+    /**
+     * move the frozen weights towards the online weights by tau
+     * @param online The network being trained
+     */
+    public void blend(FlatWeightsInterface online) {
+        checkStructure(online);
+        online.getWeights(onlineWeights);
+        frozen.getWeights(frozenWeights);
+        for (int i = 0; i < frozenWeights.length; i++) {
+            frozenWeights[i] += tau * (onlineWeights[i] - frozenWeights[i]);
+        }
+        frozen.setWeights(frozenWeights);
+    }
+
+    private void checkStructure(FlatWeightsInterface online) {
+        if (online.getNumWeights() != onlineWeights.length) {
+            throw new IllegalArgumentException("The online network has " + online.getNumWeights()
+                    + " weights, the target network has " + onlineWeights.length);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package neuralNet;
+
+import interfaces.FlatWeightsInterface;
+import profiling.CheckpointEvent;
+
+import java.io.*;
+
+/**
+ * Saves and loads the flat weights of a network in a small binary file:
+ *
+ *      int magic, int number of weights, long version, double weights[]
+ *
+ * Saving to a File first writes a temporary file next to the target, then deletes the target and renames the
+ * temporary file over it, so a crash during a save never leaves a half written checkpoint behind. File.renameTo
+ * can't replace a file on every platform, so there is a moment without the target: loading falls back to the
+ * temporary file when the target is missing.
+ * Robots can't open files directly: they pass a RobocodeFileOutputStream on a temporary data file instead, and rename it.
+ */
+public class WeightCheckpoint {
+
+    private static final int MAGIC = 0x514E4554;   // "QNET"
+
+    /**
+     * save the weights of a network to a file
+     */
+    public static void write(FlatWeightsInterface network, long version, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        write(network, version, new FileOutputStream(temp), file.getPath());
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) throw new IOException("Can't replace " + file);
+    }
+
+    /**
+     * @return The file to load: the file itself, or its temporary copy if a save stopped between deleting the file
+     *         and renaming the copy over it
+     */
+    public static File existing(File file) {
+        File temp = new File(file.getPath() + ".tmp");
+        return (!file.exists() && temp.exists()) ? temp : file;
+    }
+
+    /**
+     * save the weights of a network to a stream, and close it
+     * @param network The network to save
+     * @param version A number identifying the weights, e.g. the round they were saved at
+     * @param stream  The stream to write to
+     * @param name    The name of the checkpoint, for the profiler
+     */
+    public static void write(FlatWeightsInterface network, long version, OutputStream stream, String name) throws IOException {
+        CheckpointEvent event = new CheckpointEvent();
+        event.begin();
+        double[] weights = new double[network.getNumWeights()];
+        network.getWeights(weights);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(weights.length);
+            out.writeLong(version);
+            for (double weight : weights) out.writeDouble(weight);
+        } finally {
+            out.close();
+        }
+        event.record(name, version, 16 + 8L * weights.length);
+    }
+
+    /**
+     * load a checkpoint into a network
+     * @param network A network with the same structure as the saved one
+     * @param file    The checkpoint file
+     * @return The version the checkpoint was saved with
+     * @throws IOException If the file is not a checkpoint, or was saved from a network with a different number of weights
+     */
+    public static long read(FlatWeightsInterface network, File file) throws IOException {
+        file = existing(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a weight checkpoint");
+            int numWeights = in.readInt();
+            if (numWeights != network.getNumWeights()) {
+                throw new IOException(file + " holds " + numWeights + " weights, the network has " + network.getNumWeights());
+            }
+            long version = in.readLong();
+            double[] weights = new double[numWeights];
+            for (int i = 0; i < numWeights; i++) weights[i] = in.readDouble();
+            network.setWeights(weights);
+            return version;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package policy;
+
+import interfaces.CommonInterface;
+
+import java.io.*;
+
+/**
+ * A greedy policy compiled into a table: the best action of every state of a quantized state grid,
+ * one byte per state, indexed by the mixed-radix ordinal of the state. Picking an action is then a
+ * single array read instead of one Q value evaluation per action.
+ *
+ * Dimension i of the grid takes the values floors[i] + k * steps[i], k = 0 .. sizes[i] - 1.
+ * States off the grid are clamped to its border.
+ */
+public class GreedyPolicy {
+
+    private static final int MAGIC = 0x504F4C59;   // "POLY"
+
+    private final double[] floors;
+    private final double[] steps;
+    private final int[] sizes;
+    private final int numActions;
+    private final byte[] actions;
+
+    /**
+     * @param floors     The lowest value of each state variable
+     * @param steps      The quantization step of each state variable (1 for the integer states of a LUT)
+     * @param sizes      The number of values of each state variable
+     * @param numActions The number of actions, at most 127
+     */
+    public GreedyPolicy(double[] floors, double[] steps, int[] sizes, int numActions) {
+        if (floors.length != steps.length || floors.length != sizes.length) {
+            throw new IllegalArgumentException("floors, steps and sizes must have one entry per state variable");
+        }
+        if (numActions < 1 || numActions > Byte.MAX_VALUE) throw new IllegalArgumentException(numActions + " actions");
+        long numStates = 1;
+        for (int size : sizes) numStates *= size;
+        if (numStates > Integer.MAX_VALUE) throw new IllegalArgumentException(numStates + " states do not fit in a table");
+
+        this.floors = floors.clone();
+        this.steps = steps.clone();
+        this.sizes = sizes.clone();
+        this.numActions = numActions;
+        actions = new byte[(int) numStates];
+    }
+
+    /**
+     * A grid over the integer states of a LUT
+     * @param floors   The lowest value of each state variable
+     * @param ceilings The highest value of each state variable
+     */
+    public static GreedyPolicy forIntegerStates(int[] floors, int[] ceilings, int numActions) {
+        double[] gridFloors = new double[floors.length];
+        double[] steps = new double[floors.length];
+        int[] sizes = new int[floors.length];
+        for (int i = 0; i < floors.length; i++) {
+            gridFloors[i] = floors[i];
+            steps[i] = 1;
+            sizes[i] = ceilings[i] - floors[i] + 1;
+        }
+        return new GreedyPolicy(gridFloors, steps, sizes, numActions);
+    }
+
+    public int getNumStates() {
+        return actions.length;
+    }
+
+    public int getNumActions() {
+        return numActions;
+    }
+
+    /**
+     * @param state The state variables (only the first sizes.length values are read, so a state action row works too)
+     * @return The index of the state in the table
+     */
+    public int ordinal(double[] state) {
+        int ordinal = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            int k = (int) Math.round((state[i] - floors[i]) / steps[i]);
+            if (k < 0) k = 0;
+            else if (k >= sizes[i]) k = sizes[i] - 1;
+            ordinal = ordinal * sizes[i] + k;
+        }
+        return ordinal;
+    }
+
+    /**
+     * @return The greedy action of the state
+     */
+    public int actionFor(double[] state) {
+        return actions[ordinal(state)];
+    }
+
+    /**
+     * Evaluate Q for every state of the grid and every action, and keep the best action of each state
+     * (the lowest action index on a tie).
+     * @param q         The learned Q function
+     * @param templates One state action row per action, with the action part already filled in (as the
+     *                  robots' stateActionTable): the state variables are written into the first sizes.length
+     *                  entries of each row before it is evaluated. The rows are modified.
+     */
+    public void compile(CommonInterface q, double[][] templates) {
+        if (templates.length != numActions) throw new IllegalArgumentException(templates.length + " templates for " + numActions + " actions");
+        int[] k = new int[sizes.length];
+        for (int ordinal = 0; ordinal < actions.length; ordinal++) {
+            for (double[] row : templates) {
+                for (int i = 0; i < sizes.length; i++) row[i] = floors[i] + k[i] * steps[i];
+            }
+            int best = 0;
+            double maxQ = Double.NEGATIVE_INFINITY;
+            for (int action = 0; action < numActions; action++) {
+                double value = q.outputFor(templates[action]);
+                if (value > maxQ) {
+                    maxQ = value;
+                    best = action;
+                }
+            }
+            actions[ordinal] = (byte) best;
+
+            // next state: the last variable moves fastest, as in ordinal()
+            for (int i = sizes.length - 1; i >= 0; i--) {
+                if (++k[i] < sizes[i]) break;
+                k[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Write the grid and the table to a stream, and close it. Robots pass a RobocodeFileOutputStream,
+     * on a temporary data file that is then renamed, so a reader never sees half of the table.
+     */
+    public void save(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(sizes.length);
+            for (int i = 0; i < sizes.length; i++) {
+                out.writeDouble(floors[i]);
+                out.writeDouble(steps[i]);
+                out.writeInt(sizes[i]);
+            }
+            out.writeInt(numActions);
+            out.write(actions);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return The policy saved in the file
+     * @throws IOException if the file is not a policy
+     */
+    public static GreedyPolicy load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a policy");
+            int numVariables = in.readInt();
+            double[] floors = new double[numVariables];
+            double[] steps = new double[numVariables];
+            int[] sizes = new int[numVariables];
+            for (int i = 0; i < numVariables; i++) {
+                floors[i] = in.readDouble();
+                steps[i] = in.readDouble();
+                sizes[i] = in.readInt();
+            }
+            GreedyPolicy policy = new GreedyPolicy(floors, steps, sizes, in.readInt());
+            in.readFully(policy.actions);
+            return policy;
+        } finally {
+            in.close();
+        }
+    }
+}
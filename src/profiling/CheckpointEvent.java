@@ -0,0 +1,36 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for writing the learned Q function (LUT or network weights) to disk.
+ * Used like DecisionEvent: begin() before the write, record(...) after it.
+ */
+@Name("robocode.Checkpoint")
+@Label("Checkpoint Write")
+@Category({"Robocode", "Learning"})
+public class CheckpointEvent extends Event {
+
+    @Label("File")
+    String file;
+
+    @Label("Version")
+    long version;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    public void record(String file, long version, long bytes) {
+        end();
+        if (!shouldCommit()) return;
+        this.file = file;
+        this.version = version;
+        this.bytes = bytes;
+        commit();
+    }
+}
@@ -0,0 +1,67 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Arrays;
+
+/**
+ * JFR event for one action selection: the state action picked, its Q value and whether it was explored.
+ *
+ * Usage:
+ *      DecisionEvent event = DecisionEvent.start();
+ *      ... select the action ...
+ *      event.record(currentStateAction, selectedAction.name(), maxQ, explored);
+ *
+ * Nothing is allocated and the fields are only filled in when a recording wants the event, so this costs nothing when JFR is off.
+ */
+@Name("robocode.Decision")
+@Label("Decision")
+@Category({"Robocode", "Learning"})
+@Description("Action selected by the robot")
+@StackTrace(false)
+public class DecisionEvent extends Event {
+
+    @Label("State Action")
+    String stateAction;
+
+    @Label("Action")
+    String action;
+
+    @Label("Max Q")
+    double maxQ;
+
+    @Label("Exploring")
+    @Description("True if the action was picked at random")
+    boolean exploring;
+
+    private static final EventType TYPE = EventType.getEventType(DecisionEvent.class);
+    // handed out while the event is disabled, so a disabled event costs no allocation
+    private static final DecisionEvent DISABLED = new DecisionEvent();
+
+    /**
+     * @return A begun event, or a shared one that records nothing if no recording has the event enabled
+     */
+    public static DecisionEvent start() {
+        if (!TYPE.isEnabled()) return DISABLED;
+        DecisionEvent event = new DecisionEvent();
+        event.begin();
+        return event;
+    }
+
+    public void record(double[] stateAction, String action, double maxQ, boolean exploring) {
+        if (this == DISABLED) return;
+        end();
+        if (!shouldCommit()) return;
+        this.stateAction = Arrays.toString(stateAction);
+        this.action = action;
+        this.maxQ = maxQ;
+        this.exploring = exploring;
+        commit();
+    }
+}
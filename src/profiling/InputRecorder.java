@@ -0,0 +1,31 @@
+package profiling;
+
+/**
+ * Collects the inputs a robot feeds to its hot paths (state action vectors, surfed waves), one line each:
+ *      kind, value, value, ...
+ * so the benchmarks can replay inputs from real battles (see benchmark.BenchmarkInputs).
+ * Lines are kept in memory and taken out once per round with drain(). Not thread safe.
+ */
+public class InputRecorder {
+
+    public static final String LUT = "LUT";     // state action of RL_robot
+    public static final String NN = "NN";       // state action of BasicWaveSurferBot
+    public static final String WAVE = "WAVE";   // x, y, velocity, heading, fireX, fireY, bulletVelocity, directAngle, distanceTraveled, direction
+
+    private final StringBuilder lines = new StringBuilder(4096);
+
+    public void add(String kind, double[] values) {
+        lines.append(kind);
+        for (double value : values) lines.append(',').append(value);
+        lines.append('\n');
+    }
+
+    /**
+     * @return Everything recorded since the last call
+     */
+    public String drain() {
+        String recorded = lines.toString();
+        lines.setLength(0);
+        return recorded;
+    }
+}
@@ -0,0 +1,76 @@
+package profiling;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds.
+ *
+ * Each power of two is split into 4 buckets, so a percentile is reported within 25% of the
+ * true value, from 1 ns up to Long.MAX_VALUE, with 256 counters and no allocation per sample.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;   // per power of two
+    private static final int NUM_BUCKETS = 256;
+
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucketFor(nanos)]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile In [0, 100]
+     * @return The upper bound of the bucket holding that percentile, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, upperBound(i));
+        }
+        return max;
+    }
+
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) counts[i] = 0;
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    // 0..3 map to themselves, then 4 buckets per power of two: [4,5), [5,6), ... [8,10), [10,12), ...
+    static int bucketFor(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int msb = 63 - Long.numberOfLeadingZeros(nanos);
+        return (msb - 1) * SUB_BUCKETS + (int) ((nanos >>> (msb - 2)) & (SUB_BUCKETS - 1));
+    }
+
+    // the largest value that falls into a bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int msb = bucket / SUB_BUCKETS + 1;
+        long lower = (1L << msb) + ((long) (bucket % SUB_BUCKETS) << (msb - 2));
+        return lower + (1L << (msb - 2)) - 1;
+    }
+}
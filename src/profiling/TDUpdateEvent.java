@@ -0,0 +1,55 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one temporal difference update of a Q function (a back step).
+ * Used like DecisionEvent: start() before the update, record(...) after it.
+ */
+@Name("robocode.TDUpdate")
+@Label("TD Update")
+@Category({"Robocode", "Learning"})
+@Description("Back step of the Q function")
+@StackTrace(false)
+public class TDUpdateEvent extends Event {
+
+    @Label("Backend")
+    @Description("LUT or NN")
+    String backend;
+
+    @Label("Reward")
+    double reward;
+
+    @Label("Error Q")
+    double errorQ;
+
+    private static final EventType TYPE = EventType.getEventType(TDUpdateEvent.class);
+    // handed out while the event is disabled, so a disabled event costs no allocation
+    private static final TDUpdateEvent DISABLED = new TDUpdateEvent();
+
+    /**
+     * @return A begun event, or a shared one that records nothing if no recording has the event enabled
+     */
+    public static TDUpdateEvent start() {
+        if (!TYPE.isEnabled()) return DISABLED;
+        TDUpdateEvent event = new TDUpdateEvent();
+        event.begin();
+        return event;
+    }
+
+    public void record(String backend, double reward, double errorQ) {
+        if (this == DISABLED) return;
+        end();
+        if (!shouldCommit()) return;
+        this.backend = backend;
+        this.reward = reward;
+        this.errorQ = errorQ;
+        commit();
+    }
+}
@@ -0,0 +1,84 @@
+package profiling;
+
+import java.util.Locale;
+
+/**
+ * Measures how much of each turn the robot spends in its main stages, and counts skipped turns.
+ *
+ * Usage:
+ *      long start = profiler.start();
+ *      ... stage ...
+ *      profiler.stop(TickProfiler.Stage.SURF, start);
+ *
+ * When the profiler is disabled, start and stop do nothing. Not thread safe: only the robot's thread may use it.
+ */
+public class TickProfiler {
+
+    public enum Stage {
+        SCAN, UPDATE_STATE_ACTION, BACK_STEP, SURF, PREDICT_POSITION
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final boolean enabled;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private int skippedTurns = 0;
+    private final StringBuilder summary = new StringBuilder(1024);
+
+    /**
+     * @param enabled false to turn all measurements into no-ops
+     */
+    public TickProfiler(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The start time of a stage, to pass to stop
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void stop(Stage stage, long start) {
+        if (enabled) histograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    public void skippedTurn() {
+        skippedTurns++;
+    }
+
+    public int getSkippedTurns() {
+        return skippedTurns;
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Summarize the round, one line per stage that was measured plus one for the skipped turns:
+     *      round, stage, count, mean, p50, p90, p99, max  (times in microseconds)
+     * and reset all counters for the next round.
+     * @param round The round number
+     * @return The summary, to be written out in one go
+     */
+    public String roundSummary(int round) {
+        summary.setLength(0);
+        for (Stage stage : STAGES) {
+            LatencyHistogram h = histograms[stage.ordinal()];
+            if (h.getCount() == 0) continue;
+            summary.append(String.format(Locale.US, "%d, %s, %d, %.1f, %.1f, %.1f, %.1f, %.1f%n",
+                    round, stage, h.getCount(), h.getMean() / 1000.0, h.getPercentile(50) / 1000.0,
+                    h.getPercentile(90) / 1000.0, h.getPercentile(99) / 1000.0, h.getMax() / 1000.0));
+            h.reset();
+        }
+        summary.append(round).append(", SKIPPED_TURNS, ").append(skippedTurns).append(System.lineSeparator());
+        skippedTurns = 0;
+        return summary.toString();
+    }
+}
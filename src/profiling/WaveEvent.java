@@ -0,0 +1,57 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR instant event for an enemy wave being created or removed.
+ */
+@Name("robocode.Wave")
+@Label("Enemy Wave")
+@Category({"Robocode", "Movement"})
+@Description("Enemy wave created or removed")
+@StackTrace(false)
+public class WaveEvent extends Event {
+
+    public static final String CREATED = "created";
+    public static final String PASSED = "passed";
+    public static final String HIT = "hit";
+    public static final String BULLET_HIT = "bullet hit";
+
+    @Label("Change")
+    @Description("created, passed, hit or bullet hit (shot down by our bullet)")
+    String change;
+
+    @Label("Fire Time")
+    long fireTime;
+
+    @Label("Bullet Velocity")
+    double bulletVelocity;
+
+    @Label("Active Waves")
+    @Description("Waves tracked after the change")
+    int activeWaves;
+
+    private static final EventType TYPE = EventType.getEventType(WaveEvent.class);
+
+    /**
+     * record a wave change; no event is allocated unless a recording has the event enabled
+     */
+    public static void emit(String change, long fireTime, double bulletVelocity, int activeWaves) {
+        if (TYPE.isEnabled()) new WaveEvent().record(change, fireTime, bulletVelocity, activeWaves);
+    }
+
+    public void record(String change, long fireTime, double bulletVelocity, int activeWaves) {
+        if (!shouldCommit()) return;
+        this.change = change;
+        this.fireTime = fireTime;
+        this.bulletVelocity = bulletVelocity;
+        this.activeWaves = activeWaves;
+        commit();
+    }
+}
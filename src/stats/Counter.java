@@ -0,0 +1,38 @@
+package stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events over a window. Increments from many threads do not contend.
+ */
+public class Counter implements Metric {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public double value(boolean reset) {
+        return reset ? count.sumThenReset() : count.sum();
+    }
+}
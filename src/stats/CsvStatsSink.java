@@ -0,0 +1,57 @@
+package stats;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Appends snapshots to one CSV file, one line per window, through a single buffered writer kept open
+ * until close(). Whole numbers are written as such, the others with 5 decimals.
+ */
+public class CsvStatsSink implements Closeable {
+
+    private final BufferedWriter writer;
+    private boolean writeHeader;
+    private final DecimalFormat format = new DecimalFormat("0.00000", DecimalFormatSymbols.getInstance(Locale.US));
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * @param writer      Where the lines go, e.g. a RobocodeFileOutputStream opened in append mode
+     * @param writeHeader true to start with a line of metric names (for a new file)
+     */
+    public CsvStatsSink(Writer writer, boolean writeHeader) {
+        this.writer = new BufferedWriter(writer);
+        this.writeHeader = writeHeader;
+    }
+
+    public synchronized void write(StatsSnapshot snapshot) throws IOException {
+        line.setLength(0);
+        if (writeHeader) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (i > 0) line.append(", ");
+                line.append(snapshot.getName(i));
+            }
+            line.append('\n');
+            writeHeader = false;
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (i > 0) line.append(", ");
+            double value = snapshot.getValue(i);
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) line.append((long) value);
+            else line.append(format.format(value));
+        }
+        line.append('\n');
+        writer.write(line.toString());
+        // a window is written rarely, and the robot may be stopped at any time
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
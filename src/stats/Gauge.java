@@ -0,0 +1,32 @@
+package stats;
+
+/**
+ * The last value set, e.g. the number of rounds played. Not reset between windows.
+ */
+public class Gauge implements Metric {
+
+    private final String name;
+    private volatile double value = 0;
+
+    Gauge(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public void set(double value) {
+        this.value = value;
+    }
+
+    public double get() {
+        return value;
+    }
+
+    @Override
+    public double value(boolean reset) {
+        return value;
+    }
+}
@@ -0,0 +1,40 @@
+package stats;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The mean of the samples added over a window, 0 if there are none.
+ * A sample added while the window is being reset may end up in either window.
+ */
+public class Mean implements Metric {
+
+    private final String name;
+    private final DoubleAdder sum = new DoubleAdder();
+    private final LongAdder count = new LongAdder();
+
+    Mean(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public void add(double sample) {
+        sum.add(sample);
+        count.increment();
+    }
+
+    public double get() {
+        return value(false);
+    }
+
+    @Override
+    public double value(boolean reset) {
+        double total = reset ? sum.sumThenReset() : sum.sum();
+        long n = reset ? count.sumThenReset() : count.sum();
+        return (n == 0) ? 0 : total / n;
+    }
+}
@@ -0,0 +1,15 @@
+package stats;
+
+/**
+ * A named statistic of a StatsRegistry. Implementations are thread safe.
+ */
+public interface Metric {
+
+    String getName();
+
+    /**
+     * @param reset true to start a new window (counters and means go back to 0, gauges keep their value)
+     * @return The value over the current window
+     */
+    double value(boolean reset);
+}
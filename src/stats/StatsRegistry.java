@@ -0,0 +1,64 @@
+package stats;
+
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The learning statistics of a robot (or of several training workers sharing it).
+ *
+ * Metrics are registered once by name and then updated from any thread without locking.
+ * snapshotAndReset() reads all of them and starts a new window, e.g. every AVERAGE_SAMPLE_SIZE rounds.
+ */
+public class StatsRegistry {
+
+    private final CopyOnWriteArrayList<Metric> metrics = new CopyOnWriteArrayList<>();
+    private final HashMap<String, Metric> byName = new HashMap<>();
+
+    public Counter counter(String name) {
+        return register(Counter.class, new Counter(name));
+    }
+
+    public Mean mean(String name) {
+        return register(Mean.class, new Mean(name));
+    }
+
+    public Gauge gauge(String name) {
+        return register(Gauge.class, new Gauge(name));
+    }
+
+    // the metric already registered under this name, or the new one
+    private synchronized <M extends Metric> M register(Class<M> type, M metric) {
+        Metric existing = byName.get(metric.getName());
+        if (existing == null) {
+            byName.put(metric.getName(), metric);
+            metrics.add(metric);
+            return metric;
+        }
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException(metric.getName() + " is already registered as a " + existing.getClass().getSimpleName());
+        }
+        return type.cast(existing);
+    }
+
+    public StatsSnapshot snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * @return The values of the window that ends now
+     */
+    public StatsSnapshot snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private StatsSnapshot snapshot(boolean reset) {
+        Metric[] current = metrics.toArray(new Metric[0]);
+        String[] names = new String[current.length];
+        double[] values = new double[current.length];
+        for (int i = 0; i < current.length; i++) {
+            names[i] = current[i].getName();
+            values[i] = current[i].value(reset);
+        }
+        return new StatsSnapshot(names, values);
+    }
+}
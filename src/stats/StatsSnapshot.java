@@ -0,0 +1,37 @@
+package stats;
+
+/**
+ * The values of all the metrics of a registry at one point, in registration order.
+ */
+public class StatsSnapshot {
+
+    private final String[] names;
+    private final double[] values;
+
+    StatsSnapshot(String[] names, double[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public double getValue(int i) {
+        return values[i];
+    }
+
+    /**
+     * @return The value of a metric, NaN if there is none with this name
+     */
+    public double get(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return values[i];
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,89 @@
+package test;
+
+import learning.BackgroundLearner;
+import learning.Transition;
+import learning.TransitionQueue;
+import neuralNet.NeuralNet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BackgroundLearner_test {
+
+    private double[][] nextStateActions = {{0, 1}, {1, 0}};
+
+    @Test
+    public void testQueueOrderAndCapacity() {
+        TransitionQueue queue = new TransitionQueue(4, 2, 2);
+        Transition t = new Transition(2, 2);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(new double[]{i, -i}, i, nextStateActions, i == 3));
+        }
+        // full: the transition is dropped
+        assertFalse(queue.offer(new double[]{9, 9}, 9, nextStateActions, false));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.poll(t));
+            assertEquals(i, t.stateAction[0], 0.0);
+            assertEquals(-i, t.stateAction[1], 0.0);
+            assertEquals(i, t.reward, 0.0);
+            assertEquals(1.0, t.nextStateActions[1][0], 0.0);
+            assertEquals(i == 3, t.terminal);
+        }
+        assertFalse(queue.poll(t));
+    }
+
+    @Test
+    public void testLearnerPublishesWeights() throws InterruptedException {
+        NeuralNet nn = new NeuralNet(2, 4, 1, 0.2, 0.0, 0.0, 1.0, false);
+        nn.initializeWeights();
+        NeuralNet actor = new NeuralNet(2, 4, 1, 0.2, 0.0, 0.0, 1.0, false);
+
+        TransitionQueue queue = new TransitionQueue(64, 2, 2);
+        BackgroundLearner<NeuralNet> learner = new BackgroundLearner<>(nn, null, queue, 2, 2, 0.5, 0.9, 10);
+        learner.start();
+
+        double[] stateAction = {1, 1};
+        int offered = 0;
+        while (offered < 50) {
+            if (queue.offer(stateAction, 1.0, nextStateActions, true)) offered++;
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (learner.getNumUpdates() < 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        learner.stop();
+        assertEquals(50, learner.getNumUpdates());
+
+        // the final snapshot holds the trained weights
+        learner.getLatest().applyTo(actor);
+        assertEquals(50, learner.getLatest().getVersion());
+        assertEquals(nn.outputFor(stateAction), actor.outputFor(stateAction), 0.0);
+    }
+
+    @Test
+    public void testDrainAfterStop() {
+        NeuralNet nn = new NeuralNet(2, 4, 1, 0.2, 0.0, 0.0, 1.0, false);
+        nn.initializeWeights();
+        TransitionQueue queue = new TransitionQueue(64, 2, 2);
+        BackgroundLearner<NeuralNet> learner = new BackgroundLearner<>(nn, null, queue, 2, 2, 0.5, 0.9, 10);
+        learner.start();
+        learner.stop();
+
+        // queued after the thread stopped, e.g. the terminal step of a round
+        double[] stateAction = {1, 1};
+        for (int i = 0; i < 3; i++) assertTrue(queue.offer(stateAction, 1.0, nextStateActions, true));
+        assertEquals(3, learner.drain());
+        assertEquals(3, learner.getNumUpdates());
+        assertEquals(3, learner.getLatest().getVersion());
+        assertFalse(queue.poll(new Transition(2, 2)));
+
+        // and it can run again next round
+        learner.start();
+        assertTrue(learner.isRunning());
+        learner.stop();
+    }
+}
@@ -0,0 +1,73 @@
+package test;
+
+import bots.Coordinate;
+import bots.DangerMemo;
+import bots.EnemyWave;
+import org.junit.Before;
+import org.junit.Test;
+import stats.Counter;
+import stats.StatsRegistry;
+
+import java.awt.geom.Point2D;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DangerMemo_test {
+
+    private DangerMemo memo;
+    private EnemyWave wave;
+    private Counter hits, misses;
+
+    @Before
+    public void setUp() {
+        StatsRegistry stats = new StatsRegistry();
+        hits = stats.counter("dangerMemoHits");
+        misses = stats.counter("dangerMemoMisses");
+        memo = new DangerMemo(hits, misses);
+        wave = new EnemyWave();
+        wave.fireTime = 20;
+        memo.store(wave, 23, 40, 8, 1.5, new Coordinate(110, 250), new Coordinate(90, 150), 0.25, 0.5);
+    }
+
+    @Test
+    public void testHitOnLaterTicks() {
+        // two ticks later: the wave is closer, and we sped up and turned a little, but within the same steps
+        assertTrue(memo.lookup(wave, 23, 42, 7.8, 1.52));
+        assertEquals(0.25, memo.dangerLeft, 0);
+        assertEquals(0.5, memo.dangerRight, 0);
+        assertEquals(110, memo.clockwise.x, 0);
+        assertEquals(150, memo.counterClockwise.y, 0);
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    public void testMissOnChangedKey() {
+        assertFalse(memo.lookup(wave, 24, 40, 8, 1.5));     // moved into the next bin
+        assertFalse(memo.lookup(wave, 23, 36, 8, 1.5));     // the wave got TICK_STEP ticks closer
+        assertFalse(memo.lookup(wave, 23, 40, 6, 1.5));     // slowed down
+        assertFalse(memo.lookup(wave, 23, 40, 8, 1.6));     // turned
+        assertFalse(memo.lookup(new EnemyWave(), 23, 40, 8, 1.5));
+        // the same pooled instance refilled by a new wave
+        wave.fireTime = 24;
+        assertFalse(memo.lookup(wave, 23, 40, 8, 1.5));
+        assertEquals(6, misses.get());
+        assertEquals(0, hits.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        memo.invalidate();
+        assertFalse(memo.lookup(wave, 23, 40, 8, 1.5));
+    }
+
+    @Test
+    public void testTicksToImpact() {
+        wave.fireLocation = new Point2D.Double(0, 0);
+        wave.bulletVelocity = 14;
+        wave.distanceTraveled = 100;
+        wave.distanceToMe = 400;
+        assertEquals(21, DangerMemo.ticksToImpact(wave));
+    }
+}
@@ -0,0 +1,106 @@
+package test;
+
+import lookupTable.EligibilityTraces;
+import lookupTable.LUT;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EligibilityTraces_test {
+
+    private static final int CHAIN_LENGTH = 10;
+    private static final double ALPHA = 0.7;
+    private static final double GAMMA = 0.9;
+
+    @Test
+    public void testPruneAndCapacity() {
+        EligibilityTraces traces = new EligibilityTraces(2, 0.1);
+        traces.visit("a");
+        traces.decay(0.5);
+        traces.visit("b");
+        assertEquals(0.5, traces.get("a"), 0.0);
+        assertEquals(1.0, traces.get("b"), 0.0);
+
+        // full: the weakest trace ("a") makes room for "c"
+        traces.visit("c");
+        assertEquals(2, traces.size());
+        assertEquals(0.0, traces.get("a"), 0.0);
+
+        // 0.5 * 0.05 and 1 * 0.05 are both below the threshold
+        traces.decay(0.05);
+        assertEquals(0, traces.size());
+    }
+
+    @Test
+    public void testWatkinsDecayAndCut() {
+        double gammaLambda = GAMMA * 0.8;
+        LUT lut = new LUT(1, new int[]{0}, new int[]{CHAIN_LENGTH});
+        String s0 = lut.indexFor(new double[]{0});
+        String s1 = lut.indexFor(new double[]{1});
+        String s2 = lut.indexFor(new double[]{2});
+        EligibilityTraces traces = new EligibilityTraces(CHAIN_LENGTH, 0.001);
+
+        // greedy steps: every trace decays by gamma * lambda per step
+        traces.visit(s0);
+        traces.afterAction(true, gammaLambda);
+        assertEquals(gammaLambda, traces.get(s0), 1e-12);
+        traces.visit(s1);
+        traces.afterAction(true, gammaLambda);
+        assertEquals(gammaLambda * gammaLambda, traces.get(s0), 1e-12);
+        assertEquals(gammaLambda, traces.get(s1), 1e-12);
+
+        // and an update credits each pair in proportion to its trace
+        traces.update(lut, 1.0);
+        assertEquals(gammaLambda * gammaLambda, lut.getValue(s0), 1e-12);
+        assertEquals(gammaLambda, lut.getValue(s1), 1e-12);
+
+        // an exploratory action zeroes all the traces: later errors no longer reach s0 and s1
+        traces.visit(s2);
+        traces.afterAction(false, gammaLambda);
+        assertEquals(0, traces.size());
+        assertEquals(0.0, traces.get(s0), 0.0);
+        assertEquals(0.0, traces.get(s2), 0.0);
+        traces.update(lut, 1.0);
+        assertEquals(gammaLambda, lut.getValue(s1), 1e-12);
+        assertEquals(0.0, lut.getValue(s2), 0.0);
+    }
+
+    /*
+    Rounds needed to propagate a terminal reward back to the start of a chain of states,
+    for one-step Q-learning and for Q(lambda). The agent walks s0 -> s1 -> ... and only
+    gets a reward of 1 when it leaves the last state.
+     */
+    @Test
+    public void testTracesPropagateFaster() {
+        int oneStepRounds = roundsToLearn(0.0);
+        int traceRounds = roundsToLearn(0.8);
+        // one-step backs the reward up one state per round, so s0 gets nothing before round CHAIN_LENGTH;
+        // the traces carry it to s0 from the first round on
+        assertTrue(oneStepRounds >= CHAIN_LENGTH && oneStepRounds < 1000);
+        assertTrue(traceRounds < CHAIN_LENGTH);
+    }
+
+    private int roundsToLearn(double lambda) {
+        LUT lut = new LUT(1, new int[]{0}, new int[]{CHAIN_LENGTH});
+        EligibilityTraces traces = new EligibilityTraces(CHAIN_LENGTH, 0.001);
+        double target = 0.5 * Math.pow(GAMMA, CHAIN_LENGTH - 1);
+
+        for (int round = 1; round < 1000; round++) {
+            for (int state = 0; state < CHAIN_LENGTH; state++) {
+                String key = lut.indexFor(new double[]{state});
+                boolean terminal = (state == CHAIN_LENGTH - 1);
+                double reward = terminal ? 1.0 : 0.0;
+                double nextQ = terminal ? 0.0 : lut.getValue(lut.indexFor(new double[]{state + 1}));
+                double errorQ = ALPHA * (reward + GAMMA * nextQ - lut.getValue(key));
+
+                traces.visit(key);
+                traces.update(lut, errorQ);
+                traces.afterAction(true, GAMMA * lambda);
+            }
+            traces.clear();
+            if (lut.getValue(lut.indexFor(new double[]{0})) > target) return round;
+        }
+        return Integer.MAX_VALUE;
+    }
+}
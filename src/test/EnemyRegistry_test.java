@@ -0,0 +1,81 @@
+package test;
+
+import bots.EnemyRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EnemyRegistry_test {
+
+    private EnemyRegistry enemies;
+
+    @Before
+    public void setUp() {
+        enemies = new EnemyRegistry(3, 3);
+    }
+
+    @Test
+    public void testSlotsAndPreviousScan() {
+        // north of us, then east of us
+        int a = enemies.update("a", 1, 0, 200, 0, 8, 100, 400, 300);
+        int b = enemies.update("b", 1, Math.PI / 2, 100, 0, 0, 90, 400, 300);
+        assertEquals(0, a);
+        assertEquals(1, b);
+        assertEquals(500, enemies.getY(a), 1e-9);
+        assertEquals(500, enemies.getX(b), 1e-9);
+        // the first scan is its own previous scan
+        assertEquals(0, enemies.getEnergyDrop(a), 0);
+
+        // a fires (loses 2 energy) and moves
+        assertEquals(a, enemies.update("a", 2, 0, 210, 0, 8, 98, 400, 300));
+        assertEquals(2, enemies.getEnergyDrop(a), 1e-9);
+        assertEquals(500, enemies.getPreviousY(a), 1e-9);
+        assertEquals(510, enemies.getY(a), 1e-9);
+        assertEquals(2, enemies.velocities(a).size());
+        assertEquals(0, enemies.getEnergyDrop(b), 0);
+        assertEquals(2, enemies.size());
+    }
+
+    @Test
+    public void testClosestLivingEnemy() {
+        assertEquals(-1, enemies.closest());
+        enemies.update("a", 1, 0, 200, 0, 0, 100, 400, 300);
+        enemies.update("b", 1, 1, 100, 0, 0, 100, 400, 300);
+        enemies.update("c", 1, 2, 300, 0, 0, 100, 400, 300);
+        int a = enemies.slotOf("a"), b = enemies.slotOf("b"), c = enemies.slotOf("c");
+        assertEquals(b, enemies.closest());
+
+        // a closes in, past b
+        enemies.update("a", 2, 0, 90, 0, 0, 100, 400, 300);
+        assertEquals(a, enemies.closest());
+        // a moves away again: b is the closest
+        enemies.update("a", 3, 0, 250, 0, 0, 100, 400, 300);
+        assertEquals(b, enemies.closest());
+
+        enemies.markDead("b");
+        assertFalse(enemies.isAlive(b));
+        assertEquals(2, enemies.getNumAlive());
+        assertEquals(a, enemies.closest());
+        enemies.markDead("a");
+        assertEquals(c, enemies.closest());
+        assertEquals(-1, enemies.slotOf("d"));
+    }
+
+    @Test
+    public void testBearingFromOurPosition() {
+        // scanned north of us at (400, 500)
+        int a = enemies.update("a", 1, 0, 200, 0, 0, 100, 400, 300);
+        assertEquals(0, enemies.absBearingFrom(a, 400, 300), 1e-9);
+        assertEquals(200, enemies.distanceFrom(a, 400, 300), 1e-9);
+        // after we moved east, it is to the north west
+        assertEquals(-Math.PI / 4, enemies.absBearingFrom(a, 600, 300), 1e-9);
+        assertEquals(200 * Math.sqrt(2), enemies.distanceFrom(a, 600, 300), 1e-9);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMoreEnemiesThanCapacity() {
+        for (int i = 0; i < 4; i++) enemies.update("robot " + i, 1, 0, 100, 0, 0, 100, 400, 300);
+    }
+}
@@ -0,0 +1,89 @@
+package test;
+
+import bots.EnemyWave;
+import bots.EnemyWaveStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class EnemyWaveStore_test {
+
+    private EnemyWaveStore store;
+
+    @Before
+    public void setUp() {
+        store = new EnemyWaveStore(2);
+    }
+
+    private EnemyWave addWave(long fireTime, double bulletVelocity, double fireX) {
+        EnemyWave ew = store.add();
+        ew.fireTime = fireTime;
+        ew.bulletVelocity = bulletVelocity;
+        ew.fireLocation.setLocation(fireX, 300);
+        return ew;
+    }
+
+    @Test
+    public void testSwapRemoveAndReuse() {
+        EnemyWave first = addWave(0, 11, 100);
+        addWave(1, 14, 100);
+        EnemyWave third = addWave(2, 17, 100);  // past the initial capacity
+
+        assertSame(first, store.remove(0));
+        assertEquals(2, store.size());
+        assertSame(third, store.get(0));
+
+        // the removed wave is handed out again
+        assertSame(first, store.add());
+    }
+
+    @Test
+    public void testUpdateAndMatchByVelocityAndFireTime() {
+        // two waves of the same velocity, fired 10 ticks apart, and one of another velocity
+        addWave(0, 14, 100);
+        addWave(10, 14, 100);
+        addWave(5, 17, 100);
+        store.update(30, 500, 300);
+
+        assertEquals(420, store.get(0).distanceTraveled, 1e-9);
+        assertEquals(400, store.get(0).distanceToMe, 1e-9);
+
+        // the wave fired at 0 has reached us (420 vs 400), the one fired at 10 is 120 short
+        assertEquals(0, store.findHit(0, 14));
+        assertEquals(-1, store.findHit(0, 11));
+        // a bullet of the second wave, shot down at its traveled distance
+        assertEquals(1, store.find(0, 14, 100 + 280, 300));
+        assertEquals(2, store.find(0, 17, 100 + 425, 300));
+    }
+
+    @Test
+    public void testMatchBySource() {
+        // two enemies fired the same power from the same place at the same time (a melee)
+        addWave(0, 14, 100).source = 0;
+        addWave(0, 14, 100).source = 1;
+        store.update(30, 500, 300);
+
+        assertEquals(1, store.findHit(1, 14));
+        assertEquals(0, store.findHit(0, 14));
+        assertEquals(-1, store.findHit(2, 14));
+        assertEquals(1, store.find(1, 14, 100 + 420, 300));
+    }
+
+    @Test
+    public void testClosestSurfable() {
+        assertNull(store.closestSurfable());
+        addWave(0, 14, 100);
+        addWave(10, 14, 100);
+        store.update(30, 500, 300);
+
+        // the first wave is within a tick of us, so the second one is surfed
+        assertSame(store.get(1), store.closestSurfable());
+
+        // the remembered wave is dropped when the waves change
+        store.remove(1);
+        assertNull(store.closestSurfable());
+    }
+}
@@ -0,0 +1,51 @@
+package test;
+
+import org.junit.Test;
+import util.FastMath;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FastMath_test {
+
+    private static final double ROUNDING = 1e-12;
+
+    @Test
+    public void testSinCosWithinBound() {
+        Random rand = new Random(1);
+        for (int i = 0; i < 1000000; i++) {
+            double a = (rand.nextDouble() - 0.5) * 200;
+            assertEquals(Math.sin(a), FastMath.sin(a), FastMath.SIN_ERROR + ROUNDING);
+            assertEquals(Math.cos(a), FastMath.cos(a), FastMath.SIN_ERROR + ROUNDING);
+        }
+        assertEquals(0, FastMath.sin(0), 0);
+        assertEquals(1, FastMath.sin(Math.PI / 2), FastMath.SIN_ERROR);
+    }
+
+    @Test
+    public void testAtan2WithinBound() {
+        Random rand = new Random(2);
+        for (int i = 0; i < 1000000; i++) {
+            double y = (rand.nextDouble() - 0.5) * 1600;
+            double x = (rand.nextDouble() - 0.5) * 1600;
+            assertEquals(Math.atan2(y, x), FastMath.atan2(y, x), FastMath.ATAN_ERROR + ROUNDING);
+        }
+        // the axes and the origin
+        assertEquals(Math.PI / 2, FastMath.atan2(1, 0), 0);
+        assertEquals(Math.PI, FastMath.atan2(0, -1), 0);
+        assertEquals(-Math.PI / 2, FastMath.atan2(-3, 0), 0);
+        assertEquals(0, FastMath.atan2(0, 0), 0);
+        assertTrue(Double.isNaN(FastMath.atan2(Double.NaN, 1)));
+    }
+
+    @Test
+    public void testAsinAcosWithinBound() {
+        for (double v = -1; v <= 1; v += 1e-5) {
+            assertEquals(Math.asin(v), FastMath.asin(v), FastMath.ATAN_ERROR + ROUNDING);
+            assertEquals(Math.acos(v), FastMath.acos(v), FastMath.ATAN_ERROR + ROUNDING);
+        }
+        assertTrue(Double.isNaN(FastMath.asin(1.5)));
+    }
+}
@@ -0,0 +1,126 @@
+package test;
+
+import bots.EnemyRegistry;
+import bots.EnemyWave;
+import bots.EnemyWaveStore;
+import bots.FireDetector;
+import bots.SurfStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FireDetector_test {
+
+    private EnemyRegistry enemies;
+    private FireDetector detector;
+    private long time = 0;
+
+    @Before
+    public void setUp() {
+        enemies = new EnemyRegistry(2, 3);
+        detector = new FireDetector(enemies, new EnemyWaveStore(), 800, 600);
+        // three quiet scans of an enemy 300 px north of us, to fill the history
+        for (int i = 0; i < 3; i++) assertNull(scan("a", 300, 0, 100));
+    }
+
+    // we stand at (400, 100) heading east at velocity 8, so we move laterally to the enemy
+    private EnemyWave scan(String name, double distance, double velocity, double energy) {
+        time++;
+        int enemy = enemies.update(name, time, 0, distance, 0, velocity, energy, 400, 100);
+        return detector.onScan(enemy, time, 400, 100, 8, Math.PI / 2);
+    }
+
+    @Test
+    public void testShotNetOfOurBulletHit() {
+        // our power 1 bullet took 4 energy, the rest of the drop is a power 2 shot
+        detector.onBulletHit("a", 1);
+        EnemyWave wave = scan("a", 300, 0, 94);
+
+        assertNotNull(wave);
+        assertEquals(14, wave.bulletVelocity, 1e-9);
+        assertEquals(time - 1, wave.fireTime);
+        assertEquals(400, wave.fireLocation.x, 1e-9);
+        assertEquals(400, wave.fireLocation.y, 1e-9);
+        assertEquals(300, wave.distanceToMe, 1e-9);
+        // our lateral velocity was negative (8 * sin(bearing of -90 degrees))
+        assertEquals(-1, wave.direction);
+    }
+
+    @Test
+    public void testNoShotFromOtherEnergyChanges() {
+        // our bullet hit it (power 3: 16 energy)
+        detector.onBulletHit("a", 3);
+        assertNull(scan("a", 300, 0, 84));
+        // it hit us with a power 1 bullet (gains 3) and we rammed it (0.6)
+        detector.onHitByBullet("a", 1);
+        detector.onHitRobot("a");
+        assertNull(scan("a", 300, 0, 86.4));
+        // it hits the wall at velocity 8 (3 damage): y = 600 - 18
+        assertNull(scan("a", 482, 8, 86.4));
+        assertNull(scan("a", 482, 0, 83.4));
+    }
+
+    @Test
+    public void testHitAndDodgedWaves() {
+        EnemyWave wave = scan("a", 300, 0, 98);
+        assertNotNull(wave);
+        assertEquals(0, detector.drainDodged());
+
+        // the wave hits us 21 ticks after it was fired
+        time += 20;
+        detector.update(time, 400, 100);
+        assertSame(wave, detector.onHitByBullet("a", 2));
+        assertEquals(0, detector.drainDodged());
+
+        // the hit gave it 6 energy; the next wave (power 1) is fired from the recycled instance and passes us
+        EnemyWave next = scan("a", 300, 0, 103);
+        assertSame(wave, next);
+        for (int i = 0; i < 30; i++) detector.update(time + i, 400, 100);
+        assertEquals(1, detector.drainDodged());
+        assertEquals(0, detector.drainDodged());
+        assertEquals(0, detector.getWaves().size());
+    }
+
+    @Test
+    public void testShotDown() {
+        EnemyWave wave = scan("a", 300, 0, 99);
+        detector.update(time + 5, 400, 100);
+        // 6 ticks of flight at 17 px per tick, north of the fire location is towards us: y = 400 - 102
+        assertSame(wave, detector.onBulletHitBullet("a", 1, 400, 298));
+        assertEquals(0, detector.getWaves().size());
+        assertEquals(0, detector.drainDodged());
+    }
+
+    @Test
+    public void testSegmentWhenAimed() {
+        // it closes in to 100 px, then fires on the next scan: it aimed while it was still 300 px away
+        assertNull(scan("a", 100, 0, 100));
+        EnemyWave wave = scan("a", 100, 0, 98);
+        assertNotNull(wave);
+        // we are 100 px from the south wall, moving laterally at 8
+        assertEquals(SurfStats.segment(300, 8, 100), wave.segment);
+        assertTrue(SurfStats.segment(100, 8, 100) != wave.segment);
+    }
+
+    @Test
+    public void testHitMatchesTheShooter() {
+        for (int i = 0; i < 3; i++) assertNull(scan("b", 300, 0, 100));
+        // a fires, then b fires a tick later with the same power from the same place
+        EnemyWave waveA = scan("a", 300, 0, 98);
+        EnemyWave waveB = scan("b", 300, 0, 98);
+        assertNotNull(waveA);
+        assertNotNull(waveB);
+
+        // a's wave is the one that has just reached us, but the bullet is b's
+        time += 19;
+        detector.update(time, 400, 100);
+        assertSame(waveB, detector.onHitByBullet("b", 2));
+        assertEquals(1, detector.getWaves().size());
+        assertNull(detector.onHitByBullet("unknown", 2));
+    }
+}
@@ -0,0 +1,85 @@
+package test;
+
+import interfaces.CommonInterface;
+import lookupTable.LUT;
+import org.junit.Before;
+import org.junit.Test;
+import policy.GreedyPolicy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class GreedyPolicy_test {
+
+    private static final int[] FLOORS = {-2, 0};
+    private static final int[] CEILINGS = {2, 1};
+
+    private LUT lut;
+    private double[][] templates;
+
+    @Before
+    public void setUp() {
+        lut = new LUT(3, new int[]{-2, 0, 0}, new int[]{2, 1, 2});
+        // one row per action, the action in the last column, as RL_robot's stateActionTable
+        templates = new double[][]{{0, 0, 0}, {0, 0, 1}, {0, 0, 2}};
+    }
+
+    @Test
+    public void testLUTPolicy() {
+        // action 2 is best in (1, 1), action 1 in (-2, 0); everywhere else all Q values are 0, so action 0 wins the tie
+        lut.train(new double[]{1, 1, 2}, 5);
+        lut.train(new double[]{1, 1, 0}, 1);
+        lut.train(new double[]{-2, 0, 1}, 0.5);
+
+        GreedyPolicy policy = GreedyPolicy.forIntegerStates(FLOORS, CEILINGS, 3);
+        policy.compile(lut, templates);
+
+        assertEquals(10, policy.getNumStates());
+        assertEquals(2, policy.actionFor(new double[]{1, 1}));
+        assertEquals(1, policy.actionFor(new double[]{-2, 0}));
+        assertEquals(0, policy.actionFor(new double[]{0, 1}));
+        // a state action row works as the state, and states off the grid are clamped
+        assertEquals(2, policy.actionFor(new double[]{1, 1, 0}));
+        assertEquals(1, policy.actionFor(new double[]{-5, -1}));
+    }
+
+    @Test
+    public void testNetworkGridAndSaveLoad() throws IOException {
+        // a Q function of continuous inputs: action 1 is best where x > 0
+        CommonInterface q = new CommonInterface() {
+            @Override
+            public double outputFor(double[] X) {
+                return (X[2] == 1) ? X[0] : 0;
+            }
+
+            @Override
+            public double train(double[] X, double argValue) {
+                return 0;
+            }
+
+            @Override
+            public void save(File argFile) {
+            }
+
+            @Override
+            public void load(String argFileName) {
+            }
+        };
+        GreedyPolicy policy = new GreedyPolicy(new double[]{-4, -3}, new double[]{0.5, 0.5}, new int[]{17, 13}, 2);
+        policy.compile(q, new double[][]{{0, 0, 0}, {0, 0, 1}});
+
+        File file = File.createTempFile("policy", ".bin");
+        file.deleteOnExit();
+        policy.save(new FileOutputStream(file));
+        GreedyPolicy loaded = GreedyPolicy.load(file);
+
+        assertEquals(17 * 13, loaded.getNumStates());
+        assertEquals(1, loaded.actionFor(new double[]{3.9, -2.1}));
+        assertEquals(0, loaded.actionFor(new double[]{-0.6, 1.4}));
+        // 0.2 is quantized to the grid point 0, where both actions are worth 0
+        assertEquals(0, loaded.actionFor(new double[]{0.2, 0}));
+    }
+}
@@ -0,0 +1,61 @@
+package test;
+
+import org.junit.Before;
+import org.junit.Test;
+import tuning.Dataset;
+import tuning.HyperparameterSweep;
+import tuning.SweepConfig;
+import tuning.SweepResult;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HyperparameterSweep_test {
+
+    private Dataset dataset;
+
+    @Before
+    public void setUp() {
+        // an easy target: 0.2 + 0.6 * x1, whatever x2 is
+        double[][] inputs = {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+        double[] targets = {0.2, 0.2, 0.8, 0.8};
+        dataset = new Dataset(inputs, targets);
+    }
+
+    @Test
+    public void testWorseConfigurationStopsEarly() throws InterruptedException {
+        SweepConfig learning = new SweepConfig(4, 0.5, 0.5, false);
+        SweepConfig notLearning = new SweepConfig(4, 0.0, 0.0, false);
+        HyperparameterSweep sweep = new HyperparameterSweep(dataset, 2000, 0.0, 100, 1.5);
+
+        // one thread: the learning configuration sets the best errors before the other one starts
+        List<SweepResult> results = sweep.run(Arrays.asList(learning, notLearning), 1);
+
+        assertEquals(learning, results.get(0).config);
+        assertFalse(results.get(0).stoppedEarly);
+        assertEquals(2000, results.get(0).epochs);
+        assertEquals(notLearning, results.get(1).config);
+        assertTrue(results.get(1).stoppedEarly);
+        assertTrue(results.get(1).epochs >= 100 && results.get(1).epochs < 2000);
+    }
+
+    @Test
+    public void testParallelGrid() throws InterruptedException, IOException {
+        List<SweepConfig> grid = SweepConfig.grid(new int[]{2, 4}, new double[]{0.1, 0.5}, new double[]{0.0, 0.9}, new boolean[]{false, true});
+        HyperparameterSweep sweep = new HyperparameterSweep(dataset, 500, 0.01, 50, 3);
+        List<SweepResult> results = sweep.run(grid, 4);
+
+        assertEquals(16, results.size());
+        for (int i = 1; i < results.size(); i++) assertTrue(results.get(i - 1).bestError <= results.get(i).bestError);
+
+        StringWriter table = new StringWriter();
+        HyperparameterSweep.writeTable(results, table);
+        assertEquals(17, table.toString().split("\n").length);
+    }
+}
@@ -0,0 +1,48 @@
+package test;
+
+import org.junit.Before;
+import org.junit.Test;
+import tuning.Dataset;
+import tuning.KFoldCrossValidation;
+import tuning.NetworkFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KFoldCrossValidation_test {
+
+    private Dataset dataset;
+
+    @Before
+    public void setUp() {
+        // a smooth target on a grid, so held out samples can be predicted from their neighbours
+        double[][] inputs = new double[40][2];
+        double[] targets = new double[40];
+        for (int i = 0; i < 40; i++) {
+            inputs[i][0] = (i % 8) / 7.0;
+            inputs[i][1] = (i / 8) / 4.0;
+            targets[i] = 0.2 + 0.4 * inputs[i][0] + 0.2 * inputs[i][1];
+        }
+        dataset = new Dataset(inputs, targets);
+    }
+
+    @Test
+    public void testNeuralNetFolds() throws InterruptedException {
+        KFoldCrossValidation cv = new KFoldCrossValidation(dataset, 5, 42);
+        KFoldCrossValidation.Result result = cv.run(NetworkFactory.Networks.neuralNet(2, 4, 0.5, 0.5, false), 500, 5);
+
+        assertEquals(5, result.getNumFolds());
+        double sum = 0;
+        for (int f = 0; f < 5; f++) {
+            // a network that has not learned anything is off by about 0.17
+            assertTrue(result.getValidationError(f) < 0.1);
+            sum += result.getValidationError(f);
+        }
+        assertEquals(sum / 5, result.getMeanValidationError(), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyFolds() {
+        new KFoldCrossValidation(dataset, 41, 42);
+    }
+}
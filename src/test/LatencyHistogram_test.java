@@ -0,0 +1,46 @@
+package test;
+
+import org.junit.Before;
+import org.junit.Test;
+import profiling.LatencyHistogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogram_test {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testPercentilesWithinBucketError() {
+        for (long nanos = 1; nanos <= 1000000; nanos++) histogram.record(nanos);
+
+        assertEquals(1000000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500000.5, histogram.getMean(), 1e-6);
+        long[] expected = {500000, 900000, 990000};
+        double[] percentiles = {50, 90, 99};
+        for (int i = 0; i < percentiles.length; i++) {
+            long p = histogram.getPercentile(percentiles[i]);
+            // a percentile is the upper bound of its bucket: never below the true value, at most 25% above
+            assertTrue(p >= expected[i]);
+            assertTrue(p <= expected[i] * 1.25);
+        }
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testReset() {
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+}
@@ -0,0 +1,42 @@
+package test;
+
+import bots.EnemyWave;
+import bots.MovementPredictor;
+import bots.WaveSurfing;
+import org.junit.Test;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MovementPredictor_test {
+
+    @Test
+    public void testMatchesReferencePrediction() {
+        Random rand = new Random(7);
+        MovementPredictor predictor = new MovementPredictor();
+        for (int i = 0; i < 1000; i++) {
+            Point2D.Double location = new Point2D.Double(18 + rand.nextDouble() * 764, 18 + rand.nextDouble() * 564);
+            double velocity = rand.nextDouble() * 16 - 8;
+            double heading = rand.nextDouble() * 2 * Math.PI;
+            EnemyWave wave = new EnemyWave();
+            wave.fireLocation = new Point2D.Double(18 + rand.nextDouble() * 764, 18 + rand.nextDouble() * 564);
+            wave.bulletVelocity = WaveSurfing.bulletVelocity(0.1 + rand.nextDouble() * 2.9);
+            wave.distanceTraveled = rand.nextDouble() * wave.fireLocation.distance(location);
+            wave.directAngle = WaveSurfing.absoluteBearing(wave.fireLocation, location);
+            wave.direction = rand.nextBoolean() ? 1 : -1;
+
+            predictor.predict(location.x, location.y, velocity, heading, wave);
+            Point2D.Double clockwise = WaveSurfing.predictPosition(location, velocity, heading, wave, 1);
+            Point2D.Double counterClockwise = WaveSurfing.predictPosition(location, velocity, heading, wave, -1);
+
+            assertEquals(clockwise.x, predictor.clockwise.x, 1e-6);
+            assertEquals(clockwise.y, predictor.clockwise.y, 1e-6);
+            assertEquals(counterClockwise.x, predictor.counterClockwise.x, 1e-6);
+            assertEquals(counterClockwise.y, predictor.counterClockwise.y, 1e-6);
+            assertEquals(WaveSurfing.getFactorIndex(wave, clockwise),
+                    WaveSurfing.getFactorIndex(wave, predictor.clockwise.x, predictor.clockwise.y));
+        }
+    }
+}
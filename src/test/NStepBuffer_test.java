@@ -0,0 +1,92 @@
+package test;
+
+import interfaces.CommonInterface;
+import learning.NStepBuffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NStepBuffer_test {
+
+    private static final double GAMMA = 0.9;
+
+    // a table keyed by the first element of the input vector, so the expected values are easy to follow
+    private static class Table implements CommonInterface {
+        HashMap<Double, Double> values = new HashMap<>();
+
+        @Override
+        public double outputFor(double[] X) {
+            Double value = values.get(X[0]);
+            return (value == null) ? 0 : value;
+        }
+
+        @Override
+        public double train(double[] X, double argValue) {
+            values.put(X[0], argValue);
+            return 0;
+        }
+
+        @Override
+        public void save(File argFile) { }
+
+        @Override
+        public void load(String argFileName) { }
+    }
+
+    private Table table;
+
+    @Before
+    public void setUp() throws Exception {
+        table = new Table();
+    }
+
+    @Test
+    public void testNStepReturn() {
+        NStepBuffer buffer = new NStepBuffer(3, 1, 1.0, GAMMA);
+
+        // nothing is updated until 3 steps are buffered
+        buffer.push(new double[]{0}, 1.0, 5.0, table);
+        buffer.push(new double[]{1}, 2.0, 5.0, table);
+        assertEquals(0.0, table.outputFor(new double[]{0}), 0.0);
+
+        buffer.push(new double[]{2}, 3.0, 10.0, table);
+        double expected = 1.0 + GAMMA * 2.0 + GAMMA * GAMMA * 3.0 + GAMMA * GAMMA * GAMMA * 10.0;
+        assertEquals(expected, table.outputFor(new double[]{0}), 1e-12);
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    public void testTerminalFlush() {
+        NStepBuffer buffer = new NStepBuffer(3, 1, 1.0, GAMMA);
+        buffer.push(new double[]{0}, 0.0, 5.0, table);
+        buffer.push(new double[]{1}, 100.0, 5.0, table);
+
+        // terminal: no bootstrap, every remaining step gets its discounted share of the final reward
+        buffer.flush(0.0, table);
+        assertEquals(0, buffer.size());
+        assertEquals(GAMMA * 100.0, table.outputFor(new double[]{0}), 1e-12);
+        assertEquals(100.0, table.outputFor(new double[]{1}), 1e-12);
+    }
+
+    @Test
+    public void testFlushOneAtATime() {
+        NStepBuffer buffer = new NStepBuffer(3, 1, 1.0, GAMMA);
+        assertFalse(buffer.pushUpdates());
+        buffer.push(new double[]{0}, 0.0, 5.0, table);
+        buffer.push(new double[]{1}, 100.0, 5.0, table);
+        // the third push would update step 0
+        assertTrue(buffer.pushUpdates());
+
+        // each flushed step returns its own error: G - Q with alpha = 1
+        assertEquals(GAMMA * 100.0, buffer.flushOne(0.0, table), 1e-12);
+        assertEquals(1, buffer.size());
+        assertEquals(100.0, buffer.flushOne(0.0, table), 1e-12);
+        assertEquals(0, buffer.size());
+    }
+}
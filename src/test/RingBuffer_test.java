@@ -0,0 +1,50 @@
+package test;
+
+import org.junit.Test;
+import util.DoubleRingBuffer;
+import util.IntRingBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RingBuffer_test {
+
+    @Test
+    public void testLookbackAfterWrapAround() {
+        IntRingBuffer ints = new IntRingBuffer(3);
+        DoubleRingBuffer doubles = new DoubleRingBuffer(3);
+        for (int i = 1; i <= 10; i++) {
+            ints.push(i);
+            doubles.push(i / 2.0);
+        }
+
+        assertEquals(3, ints.size());
+        assertEquals(10, ints.get(0));
+        assertEquals(9, ints.get(1));
+        assertEquals(8, ints.get(2));
+        assertEquals(5.0, doubles.get(0), 0);
+        assertEquals(4.0, doubles.get(2), 0);
+    }
+
+    @Test
+    public void testPartiallyFilled() {
+        DoubleRingBuffer doubles = new DoubleRingBuffer(4);
+        assertTrue(doubles.isEmpty());
+        doubles.push(1.5);
+        doubles.push(2.5);
+
+        assertEquals(2, doubles.size());
+        assertEquals(1.5, doubles.get(1), 0);
+
+        doubles.clear();
+        assertEquals(0, doubles.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testLookbackBeyondSize() {
+        IntRingBuffer ints = new IntRingBuffer(3);
+        ints.push(1);
+        ints.push(2);
+        ints.get(2);
+    }
+}
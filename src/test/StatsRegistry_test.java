@@ -0,0 +1,93 @@
+package test;
+
+import org.junit.Before;
+import org.junit.Test;
+import stats.Counter;
+import stats.CsvStatsSink;
+import stats.Gauge;
+import stats.Mean;
+import stats.StatsRegistry;
+import stats.StatsSnapshot;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class StatsRegistry_test {
+
+    private StatsRegistry stats;
+
+    @Before
+    public void setUp() {
+        stats = new StatsRegistry();
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final Counter counter = stats.counter("backSteps");
+        final Mean mean = stats.mean("errorQ");
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        counter.increment();
+                        mean.add(i % 2);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+
+        StatsSnapshot snapshot = stats.snapshot();
+        assertEquals(400000, snapshot.get("backSteps"), 0);
+        assertEquals(0.5, snapshot.get("errorQ"), 1e-12);
+    }
+
+    @Test
+    public void testSnapshotAndReset() {
+        Gauge rounds = stats.gauge("rounds");
+        Counter wins = stats.counter("wins");
+        Mean rewards = stats.mean("rewardsPerRound");
+        assertSame(wins, stats.counter("wins"));
+
+        rounds.set(500);
+        wins.add(3);
+        rewards.add(1);
+        rewards.add(2);
+        StatsSnapshot window = stats.snapshotAndReset();
+        assertEquals("rounds", window.getName(0));
+        assertEquals(500, window.getValue(0), 0);
+        assertEquals(3, window.getValue(1), 0);
+        assertEquals(1.5, window.getValue(2), 0);
+
+        // counters and means start over, gauges keep their value
+        StatsSnapshot next = stats.snapshot();
+        assertEquals(500, next.get("rounds"), 0);
+        assertEquals(0, next.get("wins"), 0);
+        assertEquals(0, next.get("rewardsPerRound"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNameClash() {
+        stats.counter("wins");
+        stats.mean("wins");
+    }
+
+    @Test
+    public void testCsvSink() throws IOException {
+        stats.gauge("rounds").set(1000);
+        stats.mean("errorQ").add(0.25);
+        StringWriter out = new StringWriter();
+        CsvStatsSink sink = new CsvStatsSink(out, true);
+        sink.write(stats.snapshotAndReset());
+        sink.write(stats.snapshotAndReset());
+        sink.close();
+
+        assertEquals("rounds, errorQ\n1000, 0.25000\n1000, 0\n", out.toString());
+    }
+}
@@ -0,0 +1,68 @@
+package test;
+
+import bots.SurfStats;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static bots.WaveSurfing.BINS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SurfStats_test {
+
+    private SurfStats stats;
+
+    @Before
+    public void setUp() {
+        stats = new SurfStats();
+    }
+
+    @Test
+    public void testSegments() {
+        assertEquals(0, SurfStats.segment(100, 0, 50));
+        assertEquals(SurfStats.SEGMENTS - 1, SurfStats.segment(600, -8, 300));
+        // the sign of the lateral velocity does not matter
+        assertEquals(SurfStats.segment(300, 6, 100), SurfStats.segment(300, -6, 100));
+        for (double distance = 0; distance < 1000; distance += 37) {
+            int s = SurfStats.segment(distance, 3, 100);
+            assertTrue(s >= 0 && s < SurfStats.SEGMENTS);
+        }
+    }
+
+    @Test
+    public void testKernelAndRollingDecay() {
+        int segment = SurfStats.segment(300, 3, 100);
+        int other = SurfStats.segment(100, 0, 50);
+        stats.logHit(segment, 10);
+
+        double w = 1 / SurfStats.ROLLING_DEPTH;
+        assertEquals(w, stats.danger(segment, 10), 1e-12);
+        assertEquals(w / 2, stats.danger(segment, 11), 1e-12);
+        assertEquals(w / 5, stats.danger(segment, 8), 1e-12);
+        assertEquals(w * SurfStats.SHARED_WEIGHT, stats.danger(other, 10), 1e-12);
+
+        // later hits elsewhere fade the first one, down to about their own kernel tail 1 / (30^2 + 1)
+        for (int i = 0; i < 50; i++) stats.logHit(segment, 40);
+        assertTrue(stats.danger(segment, 10) < 0.002);
+        assertTrue(stats.danger(segment, 40) > 0.99);
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        stats.logHit(5, 23);
+        stats.logHit(7, 0);
+        File file = File.createTempFile("surfStats", ".bin");
+        file.deleteOnExit();
+        stats.save(new FileOutputStream(file));
+
+        SurfStats loaded = new SurfStats();
+        loaded.load(file);
+        for (int s = 0; s < SurfStats.SEGMENTS; s++) {
+            for (int bin = 0; bin < BINS; bin++) assertEquals(stats.danger(s, bin), loaded.danger(s, bin), 0);
+        }
+    }
+}
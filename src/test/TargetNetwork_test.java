@@ -0,0 +1,76 @@
+package test;
+
+import neuralNet.Constants;
+import neuralNet.NeuralNet;
+import neuralNet.TargetNetwork;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TargetNetwork_test {
+
+    private NeuralNet online;
+    private NeuralNet frozen;
+    private double[] input = {0.5, -1.0, 0.25, 0.0, 0.0, 1, 0, 0, 0};
+
+    private NeuralNet newNet() {
+        return new NeuralNet(
+                Constants.NUM_INPUTS,
+                Constants.NUM_HIDDEN,
+                Constants.NUM_OUTPUTS,
+                0.2,
+                0.9,
+                Constants.ARG_A,
+                Constants.ARG_B,
+                false);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        online = newNet();
+        frozen = newNet();
+        online.initializeWeights();
+        frozen.setAllWeights(0.0);
+    }
+
+    @Test
+    public void testFlatWeightsRoundTrip() {
+        double[] weights = new double[online.getNumWeights()];
+        online.getWeights(weights);
+        frozen.setWeights(weights);
+        assertEquals(online.outputFor(input), frozen.outputFor(input), 0.0);
+    }
+
+    @Test
+    public void testHardSync() {
+        TargetNetwork<NeuralNet> target = new TargetNetwork<>(frozen, 3, 0.0);
+        double frozenOutput = target.outputFor(input);
+
+        // the target must not follow the online network before the sync interval
+        for (int i = 0; i < 2; i++) {
+            online.train(input, 1.0);
+            target.step(online);
+        }
+        assertEquals(frozenOutput, target.outputFor(input), 0.0);
+
+        online.train(input, 1.0);
+        target.step(online);
+        assertEquals(online.outputFor(input), target.outputFor(input), 0.0);
+    }
+
+    @Test
+    public void testPolyakAveraging() {
+        TargetNetwork<NeuralNet> target = new TargetNetwork<>(frozen, 1, 0.25);
+        double[] onlineWeights = new double[online.getNumWeights()];
+        double[] frozenWeights = new double[frozen.getNumWeights()];
+        online.getWeights(onlineWeights);
+
+        // frozen weights start at 0, so after one step they are tau * online weights
+        target.step(online);
+        frozen.getWeights(frozenWeights);
+        for (int i = 0; i < onlineWeights.length; i++) {
+            assertEquals(0.25 * onlineWeights[i], frozenWeights[i], 1e-12);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package test;
+
+import bots.WaveSurfing;
+import org.junit.Test;
+import robocode.util.Utils;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WallSmoothing_test {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void testMatchesIterativeVersion() {
+        Random rand = new Random(3);
+        int smoothed = 0;
+        for (int i = 0; i < 200000; i++) {
+            // bias the positions towards the walls and corners, where the smoothing happens
+            double x = 18 + Math.pow(rand.nextDouble(), 3) * 382;
+            double y = 18 + Math.pow(rand.nextDouble(), 3) * 282;
+            if (rand.nextBoolean()) x = WaveSurfing.ARENA_WIDTH - x;
+            if (rand.nextBoolean()) y = WaveSurfing.ARENA_HEIGHT - y;
+            double angle = (rand.nextDouble() - 0.5) * 4 * Math.PI;
+            int orientation = rand.nextBoolean() ? 1 : -1;
+
+            double expected = WaveSurfing.iterativeWallSmoothing(x, y, angle, orientation);
+            double actual = WaveSurfing.wallSmoothing(x, y, angle, orientation);
+            assertEquals(0, Utils.normalRelativeAngle(actual - expected), TOLERANCE);
+            if (Math.abs(Utils.normalRelativeAngle(expected - angle)) > TOLERANCE) smoothed++;
+        }
+        // most of the samples needed smoothing, so the test covers both walls and corners
+        assertTrue(smoothed > 100000);
+    }
+
+    @Test
+    public void testNoSmoothingInTheOpen() {
+        assertEquals(1.0 + 4 * Math.PI, WaveSurfing.wallSmoothing(400, 300, 1.0, 1), 0);
+    }
+}
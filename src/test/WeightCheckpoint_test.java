@@ -0,0 +1,79 @@
+package test;
+
+import neuralNet.NeuralNet;
+import neuralNet.WeightCheckpoint;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WeightCheckpoint_test {
+
+    private double[] input = {1, 0};
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+
+        NeuralNet saved = new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false);
+        saved.initializeWeights();
+        WeightCheckpoint.write(saved, 7, file);
+
+        NeuralNet loaded = new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false);
+        assertEquals(7, WeightCheckpoint.read(loaded, file));
+        assertEquals(saved.outputFor(input), loaded.outputFor(input), 0.0);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testSaveToStream() throws IOException {
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+
+        NeuralNet saved = new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false);
+        saved.initializeWeights();
+        WeightCheckpoint.write(saved, 3, new FileOutputStream(file), file.getName());
+
+        NeuralNet loaded = new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false);
+        assertEquals(3, WeightCheckpoint.read(loaded, file));
+        assertEquals(saved.outputFor(input), loaded.outputFor(input), 0.0);
+    }
+
+    @Test
+    public void testLoadTempWhenFileMissing() throws IOException {
+        File file = File.createTempFile("network", ".bin");
+        File temp = new File(file.getPath() + ".tmp");
+        temp.deleteOnExit();
+
+        // a save that stopped after deleting the old checkpoint, before renaming the new one over it
+        NeuralNet saved = new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false);
+        saved.initializeWeights();
+        WeightCheckpoint.write(saved, 5, new FileOutputStream(temp), file.getName());
+        assertTrue(file.delete());
+
+        NeuralNet loaded = new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false);
+        assertEquals(5, WeightCheckpoint.read(loaded, file));
+        assertEquals(saved.outputFor(input), loaded.outputFor(input), 0.0);
+    }
+
+    @Test
+    public void testStructureMismatch() throws IOException {
+        File file = File.createTempFile("network", ".bin");
+        file.deleteOnExit();
+        new NeuralNet(2, 4, 1, 0.2, 0.9, 0.0, 1.0, false).save(file);
+
+        NeuralNet other = new NeuralNet(2, 5, 1, 0.2, 0.9, 0.0, 1.0, false);
+        try {
+            other.load(file.getPath());
+            throw new AssertionError("loading a checkpoint of a different size must fail");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package tuning;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Input vectors and target values for offline training. Loaded once and never modified,
+ * so any number of training tasks can read it at the same time.
+ */
+public class Dataset {
+
+    private final double[][] inputs;
+    private final double[] targets;
+
+    /**
+     * @param inputs  One input vector per sample, all of the same length (copied)
+     * @param targets One target value per sample (copied)
+     */
+    public Dataset(double[][] inputs, double[] targets) {
+        if (inputs.length != targets.length) {
+            throw new IllegalArgumentException(inputs.length + " inputs for " + targets.length + " targets");
+        }
+        this.inputs = new double[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i].length != inputs[0].length) throw new IllegalArgumentException("input " + i + " has a different length");
+            this.inputs[i] = inputs[i].clone();
+        }
+        this.targets = targets.clone();
+    }
+
+    /**
+     * Read a LUT saved by the robots (a UTF key "x1,x2,...," then a double, per entry).
+     * If a key appears more than once, the first value is kept.
+     * @param file      The LUT file, e.g. LUT.dat
+     * @param numInputs The number of values in a key
+     */
+    public static Dataset loadLUT(File file, int numInputs) throws IOException {
+        LinkedHashMap<String, Double> table = new LinkedHashMap<>();
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            while (in.available() > 0) {
+                String key = in.readUTF();
+                double value = in.readDouble();
+                table.putIfAbsent(key, value);
+            }
+        } finally {
+            in.close();
+        }
+
+        ArrayList<double[]> inputs = new ArrayList<>(table.size());
+        double[] targets = new double[table.size()];
+        for (Map.Entry<String, Double> entry : table.entrySet()) {
+            String[] values = entry.getKey().split(",");
+            double[] X = new double[numInputs];
+            for (int i = 0; i < numInputs; i++) X[i] = Double.parseDouble(values[i]);
+            targets[inputs.size()] = entry.getValue();
+            inputs.add(X);
+        }
+        return new Dataset(inputs.toArray(new double[inputs.size()][]), targets);
+    }
+
+    public int size() {
+        return targets.length;
+    }
+
+    public int getNumInputs() {
+        return (inputs.length == 0) ? 0 : inputs[0].length;
+    }
+
+    /**
+     * @return The input vector of a sample, shared: callers must not modify it
+     */
+    public double[] getInput(int i) {
+        return inputs[i];
+    }
+
+    public double getTarget(int i) {
+        return targets[i];
+    }
+}
@@ -0,0 +1,168 @@
+package tuning;
+
+import neuralNet.Constants;
+import neuralNet.NeuralNet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trains one NeuralNet per configuration of a hyperparameter grid, on a thread pool, against the same read-only dataset.
+ *
+ * Every epoch each task publishes its RMS error to a shared table of the best error reached at that epoch. After
+ * minEpochs, a task whose error is more than stopRatio times the best at the same epoch is stopped early: it is
+ * clearly worse than a configuration that has already been there, and its core is better spent on the rest of the grid.
+ */
+public class HyperparameterSweep {
+
+    private final Dataset dataset;
+    private final int maxEpochs;
+    private final double targetError;
+    private final int minEpochs;
+    private final double stopRatio;
+
+    // best RMS error of any configuration at each epoch, as double bits
+    private final AtomicLongArray bestAtEpoch;
+
+    /**
+     * @param dataset     The training data, shared by all tasks
+     * @param maxEpochs   Epochs after which a configuration stops
+     * @param targetError RMS error at which a configuration stops
+     * @param minEpochs   Epochs every configuration trains before it can be stopped early
+     * @param stopRatio   How many times the best error at the same epoch a configuration may be, >1
+     */
+    public HyperparameterSweep(Dataset dataset, int maxEpochs, double targetError, int minEpochs, double stopRatio) {
+        this.dataset = dataset;
+        this.maxEpochs = maxEpochs;
+        this.targetError = targetError;
+        this.minEpochs = minEpochs;
+        this.stopRatio = stopRatio;
+        bestAtEpoch = new AtomicLongArray(maxEpochs + 1);
+        for (int i = 0; i <= maxEpochs; i++) bestAtEpoch.set(i, Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * @param configs    The configurations to train
+     * @param numThreads The number of configurations trained at the same time
+     * @return One result per configuration, lowest best error first
+     */
+    public List<SweepResult> run(List<SweepConfig> configs, int numThreads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        List<SweepResult> results = new ArrayList<>(configs.size());
+        try {
+            List<Future<SweepResult>> futures = new ArrayList<>(configs.size());
+            for (final SweepConfig config : configs) {
+                futures.add(pool.submit(new Callable<SweepResult>() {
+                    @Override
+                    public SweepResult call() {
+                        return train(config);
+                    }
+                }));
+            }
+            for (Future<SweepResult> future : futures) results.add(future.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a configuration failed to train", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Collections.sort(results, new Comparator<SweepResult>() {
+            @Override
+            public int compare(SweepResult a, SweepResult b) {
+                return Double.compare(a.bestError, b.bestError);
+            }
+        });
+        return results;
+    }
+
+    SweepResult train(SweepConfig config) {
+        long start = System.currentTimeMillis();
+        NeuralNet nn = new NeuralNet(dataset.getNumInputs(), config.numHidden, 1, config.learningRate, config.momentum,
+                Constants.ARG_A, Constants.ARG_B, config.bipolar);
+        nn.initializeWeights();
+
+        double error = Double.POSITIVE_INFINITY;
+        double bestError = Double.POSITIVE_INFINITY;
+        boolean stoppedEarly = false;
+        int epoch = 0;
+        while (epoch < maxEpochs && error > targetError) {
+            epoch++;
+            // the error of each sample is measured on the output just before its update, as in the course work runs
+            double sumSquares = 0;
+            for (int j = 0; j < dataset.size(); j++) {
+                double target = dataset.getTarget(j);
+                double output = nn.train(dataset.getInput(j), target);
+                sumSquares += (target - output) * (target - output);
+            }
+            error = Math.sqrt(sumSquares / dataset.size());
+            bestError = Math.min(bestError, error);
+
+            double best = offerBest(epoch, error);
+            if (epoch >= minEpochs && error > stopRatio * best) {
+                stoppedEarly = true;
+                break;
+            }
+        }
+        return new SweepResult(config, epoch, error, bestError, stoppedEarly, System.currentTimeMillis() - start);
+    }
+
+    // record an error reached at an epoch, return the best error at that epoch
+    private double offerBest(int epoch, double error) {
+        while (true) {
+            long bits = bestAtEpoch.get(epoch);
+            double best = Double.longBitsToDouble(bits);
+            if (error >= best) return best;
+            if (bestAtEpoch.compareAndSet(epoch, bits, Double.doubleToLongBits(error))) return error;
+        }
+    }
+
+    /**
+     * Write all the results as one table, header first.
+     */
+    public static void writeTable(List<SweepResult> results, Writer out) throws IOException {
+        BufferedWriter writer = new BufferedWriter(out);
+        writer.write(SweepResult.header());
+        writer.newLine();
+        for (SweepResult result : results) {
+            writer.write(result.toString());
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Usage: HyperparameterSweep LUT.dat results.csv [number of inputs, default 9]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int numInputs = (args.length > 2) ? Integer.parseInt(args[2]) : Constants.NUM_INPUTS;
+        Dataset dataset = Dataset.loadLUT(new File(args[0]), numInputs);
+
+        List<SweepConfig> grid = SweepConfig.grid(
+                new int[]{6, 10, 14, 17, 20, 25, 30, 40},
+                new double[]{0.001, 0.01, 0.05, 0.1},
+                new double[]{0.0, 0.5, 0.9},
+                new boolean[]{false, true});
+        HyperparameterSweep sweep = new HyperparameterSweep(dataset, Constants.MAX_EPOCHS, Constants.TARGET_ERROR_XOR, 50, 1.5);
+        List<SweepResult> results = sweep.run(grid, Runtime.getRuntime().availableProcessors());
+
+        FileWriter out = new FileWriter(args[1]);
+        try {
+            writeTable(results, out);
+        } finally {
+            out.close();
+        }
+    }
+}
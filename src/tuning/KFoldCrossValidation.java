@@ -0,0 +1,171 @@
+package tuning;
+
+import interfaces.CommonInterface;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * k-fold cross validation of a network topology, with the folds trained in parallel.
+ *
+ * The samples are shuffled once into an index order; fold f is the f-th slice of that order. Each fold trains a new
+ * network from the factory on every other slice and measures its RMS error on its own slice. The folds only read the
+ * shared dataset through the index order, so nothing is copied.
+ */
+public class KFoldCrossValidation {
+
+    private final Dataset dataset;
+    private final int numFolds;
+    private final int[] order;
+
+    /**
+     * @param dataset  The samples, shared read-only by all folds
+     * @param numFolds k, at least 2 and at most the number of samples
+     * @param seed     Seed of the shuffle that assigns samples to folds
+     */
+    public KFoldCrossValidation(Dataset dataset, int numFolds, long seed) {
+        if (numFolds < 2 || numFolds > dataset.size()) {
+            throw new IllegalArgumentException("cannot split " + dataset.size() + " samples into " + numFolds + " folds");
+        }
+        this.dataset = dataset;
+        this.numFolds = numFolds;
+
+        // Fisher-Yates shuffle of the sample indices
+        order = new int[dataset.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Random rand = new Random(seed);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /**
+     * @param factory    Creates the network of each fold
+     * @param epochs     Passes over the training slices, one train() call per sample
+     * @param numThreads The number of folds trained at the same time
+     */
+    public Result run(final NetworkFactory factory, final int epochs, int numThreads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        double[] trainingErrors = new double[numFolds];
+        double[] validationErrors = new double[numFolds];
+        try {
+            List<Future<double[]>> futures = new ArrayList<>(numFolds);
+            for (int f = 0; f < numFolds; f++) {
+                final int fold = f;
+                futures.add(pool.submit(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        return trainFold(factory.create(), fold, epochs);
+                    }
+                }));
+            }
+            for (int f = 0; f < numFolds; f++) {
+                double[] errors = futures.get(f).get();
+                trainingErrors[f] = errors[0];
+                validationErrors[f] = errors[1];
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("a fold failed to train", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(trainingErrors, validationErrors);
+    }
+
+    // first index (in order) of a fold; fold sizes differ by at most one
+    private int foldStart(int fold) {
+        return (int) ((long) fold * order.length / numFolds);
+    }
+
+    // {training RMS error, validation RMS error} of one fold
+    private double[] trainFold(CommonInterface network, int fold, int epochs) {
+        int start = foldStart(fold);
+        int end = foldStart(fold + 1);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int i = 0; i < start; i++) network.train(dataset.getInput(order[i]), dataset.getTarget(order[i]));
+            for (int i = end; i < order.length; i++) network.train(dataset.getInput(order[i]), dataset.getTarget(order[i]));
+        }
+        double trainingError = Math.sqrt((squaredError(network, 0, start) + squaredError(network, end, order.length))
+                / (order.length - (end - start)));
+        return new double[]{trainingError, rmsError(network, start, end)};
+    }
+
+    private double squaredError(CommonInterface network, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            double error = dataset.getTarget(order[i]) - network.outputFor(dataset.getInput(order[i]));
+            sum += error * error;
+        }
+        return sum;
+    }
+
+    private double rmsError(CommonInterface network, int from, int to) {
+        return Math.sqrt(squaredError(network, from, to) / (to - from));
+    }
+
+    /**
+     * Training and validation RMS errors of each fold.
+     */
+    public static class Result {
+
+        private final double[] trainingErrors;
+        private final double[] validationErrors;
+
+        Result(double[] trainingErrors, double[] validationErrors) {
+            this.trainingErrors = trainingErrors;
+            this.validationErrors = validationErrors;
+        }
+
+        public int getNumFolds() {
+            return validationErrors.length;
+        }
+
+        public double getTrainingError(int fold) {
+            return trainingErrors[fold];
+        }
+
+        public double getValidationError(int fold) {
+            return validationErrors[fold];
+        }
+
+        /**
+         * @return The mean validation error, the estimate of the generalization error
+         */
+        public double getMeanValidationError() {
+            return mean(validationErrors);
+        }
+
+        public double getMeanTrainingError() {
+            return mean(trainingErrors);
+        }
+
+        private static double mean(double[] values) {
+            double sum = 0;
+            for (double value : values) sum += value;
+            return sum / values.length;
+        }
+
+        /**
+         * @return One line per fold "fold, trainingError, validationError", then "mean, ..., ..."
+         */
+        @Override
+        public String toString() {
+            StringBuilder table = new StringBuilder("fold, trainingError, validationError\n");
+            for (int f = 0; f < getNumFolds(); f++) {
+                table.append(String.format(Locale.US, "%d, %.6f, %.6f%n", f, trainingErrors[f], validationErrors[f]));
+            }
+            table.append(String.format(Locale.US, "mean, %.6f, %.6f%n", getMeanTrainingError(), getMeanValidationError()));
+            return table.toString();
+        }
+    }
+}
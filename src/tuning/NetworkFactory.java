@@ -0,0 +1,57 @@
+package tuning;
+
+import interfaces.CommonInterface;
+import neuralNet.Constants;
+import neuralNet.EncogNetwork;
+import neuralNet.NeuralNet;
+import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.layers.BasicLayer;
+
+/**
+ * Creates a fresh, untrained network, e.g. one per fold of a cross validation.
+ * Must be safe to call from several threads.
+ */
+public interface NetworkFactory {
+
+    CommonInterface create();
+
+    /**
+     * Factories of the two network implementations, with one hidden layer and one output.
+     */
+    final class Networks {
+
+        private Networks() {
+
+        }
+
+        public static NetworkFactory neuralNet(final int numInputs, final int numHidden, final double learningRate,
+                                               final double momentum, final boolean bipolar) {
+            return new NetworkFactory() {
+                @Override
+                public CommonInterface create() {
+                    NeuralNet nn = new NeuralNet(numInputs, numHidden, 1, learningRate, momentum,
+                            Constants.ARG_A, Constants.ARG_B, bipolar);
+                    nn.initializeWeights();
+                    return nn;
+                }
+            };
+        }
+
+        public static NetworkFactory encog(final int numInputs, final int numHidden, final double learningRate,
+                                           final double momentum) {
+            return new NetworkFactory() {
+                @Override
+                public CommonInterface create() {
+                    BasicNetwork network = new BasicNetwork();
+                    network.addLayer(new BasicLayer(null, true, numInputs));
+                    network.addLayer(new BasicLayer(new ActivationSigmoid(), true, numHidden));
+                    network.addLayer(new BasicLayer(new ActivationSigmoid(), false, 1));
+                    network.getStructure().finalizeStructure();
+                    network.reset();
+                    return new EncogNetwork(network, learningRate, momentum);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One point of the hyperparameter grid of a NeuralNet.
+ */
+public class SweepConfig {
+
+    public final int numHidden;
+    public final double learningRate;
+    public final double momentum;
+    public final boolean bipolar;
+
+    public SweepConfig(int numHidden, double learningRate, double momentum, boolean bipolar) {
+        this.numHidden = numHidden;
+        this.learningRate = learningRate;
+        this.momentum = momentum;
+        this.bipolar = bipolar;
+    }
+
+    /**
+     * @return Every combination of the given values
+     */
+    public static List<SweepConfig> grid(int[] hiddenSizes, double[] learningRates, double[] momentums, boolean[] activations) {
+        List<SweepConfig> configs = new ArrayList<>();
+        for (int numHidden : hiddenSizes) {
+            for (double learningRate : learningRates) {
+                for (double momentum : momentums) {
+                    for (boolean bipolar : activations) {
+                        configs.add(new SweepConfig(numHidden, learningRate, momentum, bipolar));
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d, %s, %s, %s", numHidden, learningRate, momentum, bipolar ? "bipolar" : "binary");
+    }
+}
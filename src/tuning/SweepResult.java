@@ -0,0 +1,34 @@
+package tuning;
+
+import java.util.Locale;
+
+/**
+ * The outcome of training one SweepConfig.
+ */
+public class SweepResult {
+
+    public final SweepConfig config;
+    public final int epochs;            // epochs actually trained
+    public final double finalError;     // RMS error after the last epoch
+    public final double bestError;      // lowest RMS error of any epoch
+    public final boolean stoppedEarly;  // given up because another configuration was clearly better
+    public final long millis;
+
+    SweepResult(SweepConfig config, int epochs, double finalError, double bestError, boolean stoppedEarly, long millis) {
+        this.config = config;
+        this.epochs = epochs;
+        this.finalError = finalError;
+        this.bestError = bestError;
+        this.stoppedEarly = stoppedEarly;
+        this.millis = millis;
+    }
+
+    public static String header() {
+        return "hidden, learningRate, momentum, activation, epochs, finalError, bestError, stoppedEarly, millis";
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s, %d, %.6f, %.6f, %b, %d", config, epochs, finalError, bestError, stoppedEarly, millis);
+    }
+}
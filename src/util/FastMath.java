@@ -0,0 +1,79 @@
+package util;
+
+/**
+ * Table-based trigonometry for the robots' geometry, with linear interpolation between table entries.
+ * The resolution is set by SIN_BITS and ATAN_BITS (tables of 2^bits + 1 doubles); the interpolation error is at most
+ * h^2 / 8 * max|f''| for a table step h, which gives, in radians (or as a plain value for sin and cos):
+ *      sin, cos        (2 PI / 2^SIN_BITS)^2 / 8           = 2.9e-7 at 12 bits
+ *      atan2           (1 / 2^ATAN_BITS)^2 / 8 * 0.65      = 4.8e-9 at 12 bits
+ *      asin, acos      as atan2, being computed with it
+ * plus a few ulps of rounding. Arguments of any size are accepted, but sin and cos lose precision past about 1e9.
+ */
+public final class FastMath {
+
+    private FastMath() {
+
+    }
+
+    public static final int SIN_BITS = 12;
+    public static final int ATAN_BITS = 12;
+
+    public static final double SIN_ERROR = Math.pow(2 * Math.PI / (1 << SIN_BITS), 2) / 8;
+    public static final double ATAN_ERROR = Math.pow(1.0 / (1 << ATAN_BITS), 2) / 8 * 0.65;
+
+    private static final int SIN_SIZE = 1 << SIN_BITS;
+    private static final int SIN_MASK = SIN_SIZE - 1;
+    private static final double SIN_SCALE = SIN_SIZE / (2 * Math.PI);
+    private static final int ATAN_SIZE = 1 << ATAN_BITS;
+
+    // SIN[i] = sin(2 PI i / SIN_SIZE), one period plus the closing entry
+    private static final double[] SIN = new double[SIN_SIZE + 1];
+    // ATAN[i] = atan(i / ATAN_SIZE), over [0, 1]
+    private static final double[] ATAN = new double[ATAN_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= SIN_SIZE; i++) SIN[i] = Math.sin(i / SIN_SCALE);
+        for (int i = 0; i <= ATAN_SIZE; i++) ATAN[i] = Math.atan((double) i / ATAN_SIZE);
+    }
+
+    public static double sin(double a) {
+        double t = a * SIN_SCALE;
+        long k = (long) t;
+        if (t < k) k--;     // floor
+        double fraction = t - k;
+        int i = (int) (k & SIN_MASK);
+        return SIN[i] + (SIN[i + 1] - SIN[i]) * fraction;
+    }
+
+    public static double cos(double a) {
+        return sin(a + Math.PI / 2);
+    }
+
+    public static double atan2(double y, double x) {
+        if (y != y || x != x) return Double.NaN;
+        double ax = Math.abs(x), ay = Math.abs(y);
+        if (ax == 0 && ay == 0) return Math.atan2(y, x);   // the signed zeros and PI
+        // atan of the ratio in [0, 1], then unfold the octant
+        boolean steep = ay > ax;
+        double angle = atan(steep ? ax / ay : ay / ax);
+        if (steep) angle = Math.PI / 2 - angle;
+        if (x < 0) angle = Math.PI - angle;
+        return (y < 0) ? -angle : angle;
+    }
+
+    // z in [0, 1]
+    private static double atan(double z) {
+        double t = z * ATAN_SIZE;
+        int i = (int) t;
+        if (i == ATAN_SIZE) return ATAN[ATAN_SIZE];
+        return ATAN[i] + (ATAN[i + 1] - ATAN[i]) * (t - i);
+    }
+
+    public static double asin(double v) {
+        return atan2(v, Math.sqrt(1 - v * v));
+    }
+
+    public static double acos(double v) {
+        return atan2(Math.sqrt(1 - v * v), v);
+    }
+}
@@ -0,0 +1,53 @@
+package util;
+
+/**
+ * A fixed-capacity history of ints. push is O(1) and overwrites the oldest value once the buffer is full;
+ * get(0) is the latest value, get(1) the one before, and so on.
+ */
+public class IntRingBuffer {
+
+    private final int[] values;
+    private int head = -1;  // index of the latest value
+    private int size = 0;
+
+    /**
+     * @param capacity The number of values kept, which is the deepest lookback plus one
+     */
+    public IntRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        values = new int[capacity];
+    }
+
+    public void push(int value) {
+        head = (head + 1 == values.length) ? 0 : head + 1;
+        values[head] = value;
+        if (size < values.length) size++;
+    }
+
+    /**
+     * @param lookback 0 for the latest value, 1 for the one before, ...
+     * @return The value pushed lookback pushes ago
+     */
+    public int get(int lookback) {
+        if (lookback < 0 || lookback >= size) throw new IndexOutOfBoundsException("Lookback " + lookback + ", size " + size);
+        int i = head - lookback;
+        return values[(i < 0) ? i + values.length : i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = -1;
+        size = 0;
+    }
+}